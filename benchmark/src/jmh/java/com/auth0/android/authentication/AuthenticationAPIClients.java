@@ -0,0 +1,18 @@
+package com.auth0.android.authentication;
+
+import com.auth0.android.Auth0;
+import com.auth0.android.request.internal.RequestFactory;
+import com.squareup.okhttp.OkHttpClient;
+
+/**
+ * Creates API clients that send their requests with a given HTTP client, which the public constructors don't take.
+ */
+public class AuthenticationAPIClients {
+
+    private AuthenticationAPIClients() {
+    }
+
+    public static AuthenticationAPIClient create(Auth0 auth0, OkHttpClient client) {
+        return new AuthenticationAPIClient(auth0, new RequestFactory(), client);
+    }
+}
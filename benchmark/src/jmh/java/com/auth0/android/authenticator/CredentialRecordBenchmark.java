@@ -0,0 +1,62 @@
+package com.auth0.android.authenticator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to encode and decode the stored credentials, in plain text and encrypted. Decoding an encrypted
+ * record only decrypts the access token, so reading the refresh token too, as the refresh path does, is measured separately.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CredentialRecordBenchmark {
+
+    private static final String TOKEN_TYPE = TokenType.DEFAULT.key();
+
+    private CredentialCipher cipher;
+    private CredentialRecord record;
+    private String plainValue;
+    private String sealedValue;
+
+    @Setup
+    public void setUp() {
+        cipher = new CredentialCipher(new byte[32]);
+        final String token = Fixtures.jwt(Fixtures.ACCOUNT_NAME, Fixtures.TOKEN_LIFETIME_IN_SECONDS);
+        record = CredentialRecord.create(token, "v1.MjQ2NzE4NjM5NzI0MjE4NzM0Nzg5MTIzNDc4OTEyMzQ3ODkxMjM0", Fixtures.TOKEN_LIFETIME_IN_SECONDS, null);
+        plainValue = record.encode(TOKEN_TYPE, null);
+        sealedValue = record.encode(TOKEN_TYPE, cipher);
+    }
+
+    @Benchmark
+    public String encodePlain() {
+        return record.encode(TOKEN_TYPE, null);
+    }
+
+    @Benchmark
+    public String encodeEncrypted() {
+        return record.encode(TOKEN_TYPE, cipher);
+    }
+
+    @Benchmark
+    public CredentialRecord decodePlain() {
+        return CredentialRecord.decode(plainValue, TOKEN_TYPE, null);
+    }
+
+    @Benchmark
+    public CredentialRecord decodeEncrypted() {
+        return CredentialRecord.decode(sealedValue, TOKEN_TYPE, cipher);
+    }
+
+    @Benchmark
+    public String decodeEncryptedWithRefreshToken() {
+        return CredentialRecord.decode(sealedValue, TOKEN_TYPE, cipher).refreshToken();
+    }
+}
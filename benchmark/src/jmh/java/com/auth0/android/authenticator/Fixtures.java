@@ -0,0 +1,112 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.app.Activity;
+import android.util.Base64;
+
+import com.auth0.android.Auth0;
+import com.auth0.android.authentication.AuthenticationAPIClient;
+import com.auth0.android.authentication.AuthenticationAPIClients;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sets up the library on top of the in-memory framework stand-ins: an Authenticator with an account whose tokens are valid,
+ * and an Authenticator Service that renews them with a fake Auth0 in the process. The fake answers the requests before they
+ * reach the network, so the results only include the delay it's given and not the cost of the local transport.
+ */
+class Fixtures {
+
+    static final String ACCOUNT_NAME = "john";
+    static final long TOKEN_LIFETIME_IN_SECONDS = 24 * 60 * 60;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final AtomicInteger accountTypes = new AtomicInteger();
+
+    final String accountType;
+    final Activity activity;
+    final AccountManager accountManager;
+    final Authenticator authenticator;
+
+    /**
+     * @param serverLatencyMillis how long the fake Auth0 takes to answer each refresh.
+     */
+    Fixtures(long serverLatencyMillis) {
+        //The library keeps its caches per Account Type for the life of the process, so every fixture gets its own
+        accountType = "com.auth0.benchmark" + accountTypes.incrementAndGet();
+        final Auth0 auth0 = new Auth0("CLIENT_ID", "https://benchmark.auth0.com/");
+        auth0.setOIDCConformant(true);
+        final OkHttpClient client = new OkHttpClient();
+        client.interceptors().add(new RenewingInterceptor(serverLatencyMillis));
+        final AuthenticationAPIClient apiClient = AuthenticationAPIClients.create(auth0, client);
+
+        activity = new Activity();
+        accountManager = AccountManager.get(activity);
+        accountManager.setAuthenticator(accountType, new Auth0Authenticator(activity, apiClient));
+        final CredentialRecord record = CredentialRecord.create(jwt(ACCOUNT_NAME, TOKEN_LIFETIME_IN_SECONDS), "refresh-token", TOKEN_LIFETIME_IN_SECONDS, null);
+        accountManager.addAccountExplicitly(new Account(ACCOUNT_NAME, accountType), null, CredentialStore.accountData(TokenType.DEFAULT.key(), record));
+
+        authenticator = new Authenticator(activity, accountType, apiClient);
+        authenticator.setRefreshAhead(0);
+    }
+
+    TokenCache tokenCache() {
+        return TokenCache.forAccountType(activity, accountType);
+    }
+
+    /**
+     * Creates an unsigned JWT for the given user, issued now.
+     */
+    static String jwt(String subject, long lifetimeInSeconds) {
+        final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
+        final String payload = "{\"sub\":\"auth0|" + subject + "\",\"name\":\"" + subject + "\",\"iat\":" + now + ",\"exp\":" + (now + lifetimeInSeconds) + "}";
+        return encode(header) + "." + encode(payload) + ".c2lnbmF0dXJl";
+    }
+
+    private static String encode(String json) {
+        return Base64.encodeToString(json.getBytes(UTF_8), Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+    }
+
+    /**
+     * Answers every refresh with a new opaque access token once the latency passed, without sending the request.
+     */
+    private static class RenewingInterceptor implements Interceptor {
+        private final long latencyMillis;
+        private final AtomicInteger tokens = new AtomicInteger();
+
+        RenewingInterceptor(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the response.", e);
+                }
+            }
+            final String body = "{\"access_token\":\"access-token-" + tokens.incrementAndGet() + "\",\"token_type\":\"Bearer\",\"expires_in\":" + TOKEN_LIFETIME_IN_SECONDS + "}";
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .body(ResponseBody.create(JSON, body))
+                    .build();
+        }
+    }
+}
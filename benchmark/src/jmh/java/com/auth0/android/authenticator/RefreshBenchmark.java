@@ -0,0 +1,65 @@
+package com.auth0.android.authenticator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a caller waits for a new token after the API rejected its own, while 1, 8 or 64 callers do the same
+ * at once. The renewal goes through the AccountManager and the Authenticator Service to the fake Auth0, unless
+ * the caller's token was already replaced or the caller joins the refresh in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RefreshBenchmark {
+
+    @Param({"0", "20"})
+    public long serverLatencyMillis;
+
+    private Authenticator authenticator;
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private String token;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        authenticator = new Fixtures(serverLatencyMillis).authenticator;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String oneCaller(Caller caller) throws Exception {
+        return renew(caller);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String eightCallers(Caller caller) throws Exception {
+        return renew(caller);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String sixtyFourCallers(Caller caller) throws Exception {
+        return renew(caller);
+    }
+
+    private String renew(Caller caller) throws Exception {
+        if (caller.token == null) {
+            caller.token = authenticator.getToken(Fixtures.ACCOUNT_NAME, TokenType.DEFAULT).get();
+        }
+        caller.token = authenticator.renewToken(Fixtures.ACCOUNT_NAME, TokenType.DEFAULT, caller.token).get(30, TimeUnit.SECONDS);
+        return caller.token;
+    }
+}
@@ -0,0 +1,55 @@
+package com.auth0.android.authenticator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to tell whether a token expired: from its stored record, from a JWT whose claims were
+ * already decoded, and from a JWT seen for the first time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenExpiryBenchmark {
+
+    //More tokens than TokenExpiry keeps decoded, so every one of them is decoded again
+    private static final int NEW_TOKENS = 64;
+
+    private CredentialRecord record;
+    private String token;
+    private String[] newTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        token = Fixtures.jwt(Fixtures.ACCOUNT_NAME, Fixtures.TOKEN_LIFETIME_IN_SECONDS);
+        record = CredentialRecord.create(token, "refresh-token", Fixtures.TOKEN_LIFETIME_IN_SECONDS, null);
+        newTokens = new String[NEW_TOKENS];
+        for (int i = 0; i < NEW_TOKENS; i++) {
+            newTokens[i] = Fixtures.jwt("user" + i, Fixtures.TOKEN_LIFETIME_IN_SECONDS);
+        }
+    }
+
+    @Benchmark
+    public boolean isExpired() {
+        return record.isExpired();
+    }
+
+    @Benchmark
+    public long expirationOfDecodedToken() {
+        return TokenExpiry.getExpirationTime(token);
+    }
+
+    @Benchmark
+    public long expirationOfNewToken() {
+        next = (next + 1) % NEW_TOKENS;
+        return TokenExpiry.getExpirationTime(newTokens[next]);
+    }
+}
@@ -0,0 +1,52 @@
+package com.auth0.android.authenticator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getToken when the token is in the memory cache and when it has to be read from the AccountManager,
+ * and setTokens on an existing account. The in-memory AccountManager has no IPC cost, so on a device the uncached
+ * getToken and setTokens take longer by one binder call each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenPathBenchmark {
+
+    private Fixtures fixtures;
+    private Authenticator authenticator;
+    private TokenCache tokenCache;
+    private String accessToken;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixtures = new Fixtures(0);
+        authenticator = fixtures.authenticator;
+        tokenCache = fixtures.tokenCache();
+        accessToken = Fixtures.jwt(Fixtures.ACCOUNT_NAME, Fixtures.TOKEN_LIFETIME_IN_SECONDS);
+        authenticator.getToken(Fixtures.ACCOUNT_NAME, TokenType.DEFAULT).get();
+    }
+
+    @Benchmark
+    public String getTokenCached() throws Exception {
+        return authenticator.getToken(Fixtures.ACCOUNT_NAME, TokenType.DEFAULT).get();
+    }
+
+    @Benchmark
+    public String getTokenUncached() throws Exception {
+        tokenCache.invalidate();
+        return authenticator.getToken(Fixtures.ACCOUNT_NAME, TokenType.DEFAULT).get();
+    }
+
+    @Benchmark
+    public Boolean setTokens() throws Exception {
+        return authenticator.setTokens(Fixtures.ACCOUNT_NAME, TokenType.DEFAULT, accessToken, "refresh-token", Fixtures.TOKEN_LIFETIME_IN_SECONDS).get();
+    }
+}
@@ -0,0 +1,33 @@
+package android.accounts;
+
+import android.content.Context;
+import android.os.Bundle;
+
+/**
+ * Stand-in of the base class of the Android account authenticators. The {@link AccountManager} stand-in calls it directly.
+ */
+public abstract class AbstractAccountAuthenticator {
+
+    public AbstractAccountAuthenticator(Context context) {
+    }
+
+    public abstract Bundle editProperties(AccountAuthenticatorResponse response, String accountType);
+
+    public abstract Bundle addAccount(AccountAuthenticatorResponse response, String accountType, String authTokenType, String[] requiredFeatures, Bundle options) throws NetworkErrorException;
+
+    public abstract Bundle confirmCredentials(AccountAuthenticatorResponse response, Account account, Bundle options) throws NetworkErrorException;
+
+    public abstract Bundle getAuthToken(AccountAuthenticatorResponse response, Account account, String authTokenType, Bundle options) throws NetworkErrorException;
+
+    public abstract String getAuthTokenLabel(String authTokenType);
+
+    public abstract Bundle updateCredentials(AccountAuthenticatorResponse response, Account account, String authTokenType, Bundle options) throws NetworkErrorException;
+
+    public abstract Bundle hasFeatures(AccountAuthenticatorResponse response, Account account, String[] features) throws NetworkErrorException;
+
+    public Bundle getAccountRemovalAllowed(AccountAuthenticatorResponse response, Account account) throws NetworkErrorException {
+        final Bundle result = new Bundle();
+        result.putBoolean(AccountManager.KEY_BOOLEAN_RESULT, true);
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package android.accounts;
+
+/**
+ * Stand-in of the Android Account: a name and an Account Type.
+ */
+public class Account {
+
+    public final String name;
+    public final String type;
+
+    public Account(String name, String type) {
+        if (name == null || name.isEmpty() || type == null || type.isEmpty()) {
+            throw new IllegalArgumentException("The name and type of the account must not be empty.");
+        }
+        this.name = name;
+        this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Account)) {
+            return false;
+        }
+        final Account other = (Account) o;
+        return name.equals(other.name) && type.equals(other.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + type.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Account {name=" + name + ", type=" + type + "}";
+    }
+}
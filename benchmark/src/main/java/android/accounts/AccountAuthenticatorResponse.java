@@ -0,0 +1,18 @@
+package android.accounts;
+
+import android.os.Bundle;
+
+/**
+ * Stand-in of the object an authenticator delivers its asynchronous results through.
+ */
+public class AccountAuthenticatorResponse {
+
+    public void onResult(Bundle result) {
+    }
+
+    public void onRequestContinued() {
+    }
+
+    public void onError(int errorCode, String errorMessage) {
+    }
+}
@@ -0,0 +1,327 @@
+package android.accounts;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory stand-in of the Android AccountManager, so the token path of the library runs on a plain JVM.
+ * The accounts live in this process only and every call is served without IPC, so the benchmarks measure the cost
+ * of the library itself. Like the system for an authenticator that declares custom tokens, as the library requires,
+ * getAuthToken always asks the authenticator registered with {@link #setAuthenticator(String, AbstractAccountAuthenticator)}
+ * and doesn't cache the token it returns. Callbacks run on the thread that completes the request instead of the given Handler.
+ */
+public class AccountManager {
+
+    public static final String KEY_ACCOUNT_NAME = "authAccount";
+    public static final String KEY_ACCOUNT_TYPE = "accountType";
+    public static final String KEY_AUTHTOKEN = "authtoken";
+    public static final String KEY_BOOLEAN_RESULT = "booleanResult";
+    public static final String KEY_ERROR_CODE = "errorCode";
+    public static final String KEY_ERROR_MESSAGE = "errorMessage";
+    public static final String KEY_INTENT = "intent";
+
+    public static final int ERROR_CODE_REMOTE_EXCEPTION = 1;
+    public static final int ERROR_CODE_NETWORK_ERROR = 3;
+    public static final int ERROR_CODE_CANCELED = 4;
+    public static final int ERROR_CODE_INVALID_RESPONSE = 5;
+    public static final int ERROR_CODE_UNSUPPORTED_OPERATION = 6;
+    public static final int ERROR_CODE_BAD_ARGUMENTS = 7;
+    public static final int ERROR_CODE_BAD_REQUEST = 8;
+    public static final int ERROR_CODE_BAD_AUTHENTICATION = 9;
+
+    private static final Map<Context, AccountManager> instances = new HashMap<>();
+
+    private final Map<Account, AccountData> accounts = new LinkedHashMap<>();
+    private final Map<String, AbstractAccountAuthenticator> authenticators = new HashMap<>();
+    private final List<OnAccountsUpdateListener> listeners = new CopyOnWriteArrayList<>();
+
+    public static AccountManager get(Context context) {
+        final Context appContext = context.getApplicationContext();
+        synchronized (instances) {
+            AccountManager accountManager = instances.get(appContext);
+            if (accountManager == null) {
+                accountManager = new AccountManager();
+                instances.put(appContext, accountManager);
+            }
+            return accountManager;
+        }
+    }
+
+    /**
+     * Registers the authenticator that getAuthToken asks for the tokens of the given Account Type, as the
+     * Authenticator Service declared in the manifest would be.
+     */
+    public synchronized void setAuthenticator(String accountType, AbstractAccountAuthenticator authenticator) {
+        authenticators.put(accountType, authenticator);
+    }
+
+    public synchronized Account[] getAccounts() {
+        return accounts.keySet().toArray(new Account[accounts.size()]);
+    }
+
+    public synchronized Account[] getAccountsByType(String type) {
+        final List<Account> matching = new ArrayList<>();
+        for (Account account : accounts.keySet()) {
+            if (account.type.equals(type)) {
+                matching.add(account);
+            }
+        }
+        return matching.toArray(new Account[matching.size()]);
+    }
+
+    public boolean addAccountExplicitly(Account account, String password, Bundle userdata) {
+        synchronized (this) {
+            if (accounts.containsKey(account)) {
+                return false;
+            }
+            final AccountData data = new AccountData();
+            data.password = password;
+            if (userdata != null) {
+                for (String key : userdata.keySet()) {
+                    data.userData.put(key, userdata.getString(key));
+                }
+            }
+            accounts.put(account, data);
+        }
+        notifyAccountsUpdated();
+        return true;
+    }
+
+    public boolean removeAccountExplicitly(Account account) {
+        final boolean removed;
+        synchronized (this) {
+            removed = accounts.remove(account) != null;
+        }
+        if (removed) {
+            notifyAccountsUpdated();
+        }
+        return removed;
+    }
+
+    public AccountManagerFuture<Boolean> removeAccount(Account account, AccountManagerCallback<Boolean> callback, Handler handler) {
+        final Request<Boolean> request = new Request<>(callback);
+        request.complete(removeAccountExplicitly(account));
+        return request;
+    }
+
+    public synchronized String getPassword(Account account) {
+        final AccountData data = accounts.get(account);
+        return data != null ? data.password : null;
+    }
+
+    public synchronized void setPassword(Account account, String password) {
+        final AccountData data = accounts.get(account);
+        if (data != null) {
+            data.password = password;
+        }
+    }
+
+    public synchronized String getUserData(Account account, String key) {
+        final AccountData data = accounts.get(account);
+        return data != null ? data.userData.get(key) : null;
+    }
+
+    public synchronized void setUserData(Account account, String key, String value) {
+        final AccountData data = accounts.get(account);
+        if (data == null) {
+            return;
+        }
+        if (value == null) {
+            data.userData.remove(key);
+        } else {
+            data.userData.put(key, value);
+        }
+    }
+
+    public synchronized String peekAuthToken(Account account, String authTokenType) {
+        final AccountData data = accounts.get(account);
+        return data != null ? data.authTokens.get(authTokenType) : null;
+    }
+
+    public synchronized void setAuthToken(Account account, String authTokenType, String authToken) {
+        final AccountData data = accounts.get(account);
+        if (data != null) {
+            data.authTokens.put(authTokenType, authToken);
+        }
+    }
+
+    public synchronized void invalidateAuthToken(String accountType, String authToken) {
+        if (authToken == null) {
+            return;
+        }
+        for (Map.Entry<Account, AccountData> account : accounts.entrySet()) {
+            if (account.getKey().type.equals(accountType)) {
+                account.getValue().authTokens.values().remove(authToken);
+            }
+        }
+    }
+
+    public AccountManagerFuture<Bundle> getAuthToken(Account account, String authTokenType, Bundle options, Activity activity, AccountManagerCallback<Bundle> callback, Handler handler) {
+        return getAuthToken(account, authTokenType, options, callback);
+    }
+
+    public AccountManagerFuture<Bundle> getAuthToken(Account account, String authTokenType, Bundle options, boolean notifyAuthFailure, AccountManagerCallback<Bundle> callback, Handler handler) {
+        return getAuthToken(account, authTokenType, options, callback);
+    }
+
+    public void addOnAccountsUpdatedListener(OnAccountsUpdateListener listener, Handler handler, boolean updateImmediately) {
+        listeners.add(listener);
+        if (updateImmediately) {
+            listener.onAccountsUpdated(getAccounts());
+        }
+    }
+
+    public void removeOnAccountsUpdatedListener(OnAccountsUpdateListener listener) {
+        listeners.remove(listener);
+    }
+
+    private AccountManagerFuture<Bundle> getAuthToken(final Account account, final String authTokenType, Bundle options, AccountManagerCallback<Bundle> callback) {
+        final Request<Bundle> request = new Request<>(callback);
+        final AbstractAccountAuthenticator authenticator;
+        synchronized (this) {
+            authenticator = authenticators.get(account.type);
+        }
+        if (authenticator == null) {
+            request.fail(new AuthenticatorException("There's no authenticator for " + account.type));
+            return request;
+        }
+
+        final AccountAuthenticatorResponse response = new AccountAuthenticatorResponse() {
+            @Override
+            public void onResult(Bundle result) {
+                request.complete(result);
+            }
+
+            @Override
+            public void onError(int errorCode, String errorMessage) {
+                request.fail(errorCode == ERROR_CODE_NETWORK_ERROR ? new IOException(errorMessage) : new AuthenticatorException(errorMessage));
+            }
+        };
+        try {
+            final Bundle result = authenticator.getAuthToken(response, account, authTokenType, options != null ? options : new Bundle());
+            if (result != null) {
+                response.onResult(result);
+            }
+        } catch (NetworkErrorException e) {
+            request.fail(new IOException(e));
+        }
+        return request;
+    }
+
+    private void notifyAccountsUpdated() {
+        final Account[] accounts = getAccounts();
+        for (OnAccountsUpdateListener listener : listeners) {
+            listener.onAccountsUpdated(accounts);
+        }
+    }
+
+    private static class AccountData {
+        private String password;
+        private final Map<String, String> userData = new HashMap<>();
+        private final Map<String, String> authTokens = new HashMap<>();
+    }
+
+    /**
+     * The result of a request, delivered to the callback once it completes.
+     */
+    private static class Request<V> implements AccountManagerFuture<V> {
+
+        private final AccountManagerCallback<V> callback;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private V result;
+        private Exception error;
+        private boolean cancelled;
+
+        Request(AccountManagerCallback<V> callback) {
+            this.callback = callback;
+        }
+
+        void complete(V result) {
+            finish(result, null, false);
+        }
+
+        void fail(Exception error) {
+            finish(null, error, false);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return finish(null, new OperationCanceledException(), true);
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public V getResult() throws OperationCanceledException, IOException, AuthenticatorException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException(e);
+            }
+            return deliver();
+        }
+
+        @Override
+        public V getResult(long timeout, TimeUnit unit) throws OperationCanceledException, IOException, AuthenticatorException {
+            try {
+                if (!done.await(timeout, unit)) {
+                    throw new OperationCanceledException("Timed out waiting for the result.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException(e);
+            }
+            return deliver();
+        }
+
+        private boolean finish(V result, Exception error, boolean cancelled) {
+            synchronized (this) {
+                if (done.getCount() == 0) {
+                    return false;
+                }
+                this.result = result;
+                this.error = error;
+                this.cancelled = cancelled;
+                done.countDown();
+            }
+            if (callback != null && !cancelled) {
+                callback.run(this);
+            }
+            return true;
+        }
+
+        private synchronized V deliver() throws OperationCanceledException, IOException, AuthenticatorException {
+            if (error instanceof OperationCanceledException) {
+                throw (OperationCanceledException) error;
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error != null) {
+                throw (AuthenticatorException) error;
+            }
+            return result;
+        }
+    }
+}
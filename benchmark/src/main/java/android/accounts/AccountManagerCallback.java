@@ -0,0 +1,6 @@
+package android.accounts;
+
+public interface AccountManagerCallback<V> {
+
+    void run(AccountManagerFuture<V> future);
+}
@@ -0,0 +1,19 @@
+package android.accounts;
+
+public class AuthenticatorException extends Exception {
+
+    public AuthenticatorException() {
+    }
+
+    public AuthenticatorException(String message) {
+        super(message);
+    }
+
+    public AuthenticatorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public AuthenticatorException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,6 @@
+package android.accounts;
+
+public interface OnAccountsUpdateListener {
+
+    void onAccountsUpdated(Account[] accounts);
+}
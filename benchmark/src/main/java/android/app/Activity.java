@@ -0,0 +1,9 @@
+package android.app;
+
+import android.content.Context;
+
+/**
+ * Stand-in of an Android Activity. It's only a context here.
+ */
+public class Activity extends Context {
+}
@@ -0,0 +1,136 @@
+package android.content;
+
+import android.net.ConnectivityManager;
+import android.os.Handler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in of the Android Context. Every context of the process shares a single application context, which holds
+ * the preferences in memory.
+ */
+public class Context {
+
+    public static final int MODE_PRIVATE = 0;
+    public static final String CONNECTIVITY_SERVICE = "connectivity";
+
+    private static final Context application = new Context();
+    private static final ConnectivityManager connectivityManager = new ConnectivityManager();
+
+    private final Map<String, SharedPreferences> preferences = new HashMap<>();
+
+    public Context getApplicationContext() {
+        return application;
+    }
+
+    public String getPackageName() {
+        return "com.auth0.android.authenticator.benchmark";
+    }
+
+    public Object getSystemService(String name) {
+        return CONNECTIVITY_SERVICE.equals(name) ? connectivityManager : null;
+    }
+
+    /**
+     * Broadcasts are never sent here, so the receiver is ignored.
+     */
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission, Handler scheduler) {
+        return null;
+    }
+
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+    }
+
+    public void sendBroadcast(Intent intent) {
+    }
+
+    public void sendBroadcast(Intent intent, String receiverPermission) {
+    }
+
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        final Map<String, SharedPreferences> preferences = application.preferences;
+        synchronized (preferences) {
+            SharedPreferences file = preferences.get(name);
+            if (file == null) {
+                file = new InMemoryPreferences();
+                preferences.put(name, file);
+            }
+            return file;
+        }
+    }
+
+    private static class InMemoryPreferences implements SharedPreferences {
+
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            final String value = values.get(key);
+            return value != null ? value : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new Editor() {
+                private final Map<String, String> changes = new HashMap<>();
+                private boolean clear;
+
+                @Override
+                public Editor putString(String key, String value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor remove(String key) {
+                    changes.put(key, null);
+                    return this;
+                }
+
+                @Override
+                public Editor clear() {
+                    clear = true;
+                    return this;
+                }
+
+                @Override
+                public boolean commit() {
+                    synchronized (values) {
+                        if (clear) {
+                            values.clear();
+                        }
+                        for (Map.Entry<String, String> change : changes.entrySet()) {
+                            if (change.getValue() == null) {
+                                values.remove(change.getKey());
+                            } else {
+                                values.put(change.getKey(), change.getValue());
+                            }
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public void apply() {
+                    commit();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package android.content;
+
+/**
+ * Stand-in of the Android Intent. Broadcasts are never delivered here, so it holds nothing.
+ */
+public class Intent {
+
+    public static final int FLAG_RECEIVER_REGISTERED_ONLY = 0x40000000;
+
+    public Intent() {
+    }
+
+    public Intent(String action) {
+    }
+
+    public Intent putExtra(String name, String value) {
+        return this;
+    }
+
+    public Intent putExtra(String name, int value) {
+        return this;
+    }
+
+    public Intent putExtra(String name, long value) {
+        return this;
+    }
+
+    public Intent addFlags(int flags) {
+        return this;
+    }
+
+    public String getStringExtra(String name) {
+        return null;
+    }
+
+    public int getIntExtra(String name, int defaultValue) {
+        return defaultValue;
+    }
+
+    public long getLongExtra(String name, long defaultValue) {
+        return defaultValue;
+    }
+}
@@ -0,0 +1,17 @@
+package android.content;
+
+/**
+ * Stand-in of the Android IntentFilter.
+ */
+public class IntentFilter {
+
+    private final String action;
+
+    public IntentFilter(String action) {
+        this.action = action;
+    }
+
+    public final String getAction(int index) {
+        return action;
+    }
+}
@@ -0,0 +1,15 @@
+package android.net;
+
+/**
+ * Stand-in of the Android ConnectivityManager. The device is always online, so refreshes are never deferred.
+ */
+public class ConnectivityManager {
+
+    public static final String CONNECTIVITY_ACTION = "android.net.conn.CONNECTIVITY_CHANGE";
+
+    private final NetworkInfo network = new NetworkInfo();
+
+    public NetworkInfo getActiveNetworkInfo() {
+        return network;
+    }
+}
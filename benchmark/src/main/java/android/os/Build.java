@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Stand-in of the Android build information, describing a Marshmallow device.
+ */
+public class Build {
+
+    public static String MANUFACTURER = "JVM";
+    public static String MODEL = System.getProperty("java.vm.name");
+
+    public static class VERSION {
+        public static int SDK_INT = 23;
+        public static String RELEASE = "6.0";
+    }
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * Stand-in of the Android HandlerThread. Its Looper never runs anything, since the Handlers run the callbacks right away.
+ */
+public class HandlerThread extends Thread {
+
+    private final Looper looper = new Looper();
+
+    public HandlerThread(String name) {
+        super(name);
+        setDaemon(true);
+    }
+
+    public Looper getLooper() {
+        return looper;
+    }
+}
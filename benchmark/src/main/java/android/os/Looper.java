@@ -0,0 +1,7 @@
+package android.os;
+
+/**
+ * Stand-in of the Android Looper. There are no message queues here, the Handlers run the callbacks right away.
+ */
+public class Looper {
+}
@@ -0,0 +1,47 @@
+package android.os;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Stand-in of the Android Parcel that keeps the written values in memory, in order.
+ */
+public final class Parcel {
+
+    private static final Object NULL = new Object();
+
+    private final Queue<Object> values = new ArrayDeque<>();
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    public void recycle() {
+        values.clear();
+    }
+
+    public void writeString(String value) {
+        values.add(value == null ? NULL : value);
+    }
+
+    public String readString() {
+        final Object value = values.poll();
+        return value == NULL ? null : (String) value;
+    }
+
+    public void writeLong(long value) {
+        values.add(value);
+    }
+
+    public long readLong() {
+        return (Long) values.poll();
+    }
+
+    public void writeInt(int value) {
+        values.add(value);
+    }
+
+    public int readInt() {
+        return (Integer) values.poll();
+    }
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * Stand-in of the Android Parcelable, needed to load the classes of libraries that implement it. Nothing is parceled.
+ */
+public interface Parcelable {
+
+    int describeContents();
+
+    void writeToParcel(Parcel dest, int flags);
+
+    interface Creator<T> {
+
+        T createFromParcel(Parcel source);
+
+        T[] newArray(int size);
+    }
+}
@@ -0,0 +1,30 @@
+package android.text;
+
+public class TextUtils {
+
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+
+    public static boolean equals(CharSequence a, CharSequence b) {
+        return a == b || a != null && b != null && a.toString().equals(b.toString());
+    }
+
+    public static String join(CharSequence delimiter, Iterable tokens) {
+        final StringBuilder sb = new StringBuilder();
+        for (Object token : tokens) {
+            if (sb.length() > 0) {
+                sb.append(delimiter);
+            }
+            sb.append(token);
+        }
+        return sb.toString();
+    }
+
+    public static String join(CharSequence delimiter, Object[] tokens) {
+        return join(delimiter, java.util.Arrays.asList(tokens));
+    }
+}
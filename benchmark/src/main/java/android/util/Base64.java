@@ -0,0 +1,38 @@
+package android.util;
+
+/**
+ * Stand-in of the Android Base64 utility on top of the one in the JDK.
+ */
+public final class Base64 {
+
+    public static final int DEFAULT = 0;
+    public static final int NO_PADDING = 1;
+    public static final int NO_WRAP = 2;
+    public static final int CRLF = 4;
+    public static final int URL_SAFE = 8;
+
+    private Base64() {
+    }
+
+    public static byte[] decode(String str, int flags) {
+        final String value = str.trim();
+        return (flags & URL_SAFE) != 0 ? java.util.Base64.getUrlDecoder().decode(value) : java.util.Base64.getMimeDecoder().decode(value);
+    }
+
+    public static byte[] decode(byte[] input, int flags) {
+        return decode(new String(input, java.nio.charset.StandardCharsets.US_ASCII), flags);
+    }
+
+    public static String encodeToString(byte[] input, int flags) {
+        return new String(encode(input, flags), java.nio.charset.StandardCharsets.US_ASCII);
+    }
+
+    public static byte[] encode(byte[] input, int flags) {
+        java.util.Base64.Encoder encoder = (flags & URL_SAFE) != 0 ? java.util.Base64.getUrlEncoder() : java.util.Base64.getEncoder();
+        if ((flags & NO_PADDING) != 0) {
+            encoder = encoder.withoutPadding();
+        }
+        //Android wraps the output in lines unless NO_WRAP is given, which these benchmarks don't need
+        return encoder.encode(input);
+    }
+}
@@ -0,0 +1,145 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.accounts.OnAccountsUpdateListener;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of the Accounts of an Account Type, by name. It's read from the AccountManager once and then kept
+ * up to date by listening for account changes, so looking up an account doesn't need an IPC call.
+ * It also remembers which account is the active one. A single instance is shared by every Authenticator of the same
+ * Account Type in the process.
+ */
+class AccountIndex {
+
+    private static final String TAG = AccountIndex.class.getSimpleName();
+    private static final String PREFERENCES_NAME = "com.auth0.android.authenticator";
+    private static final String KEY_ACTIVE_ACCOUNT = "active_account/";
+    private static final Map<String, AccountIndex> instances = new HashMap<>();
+
+    private final String accountType;
+    private final SharedPreferences preferences;
+    private volatile Map<String, Account> accounts = Collections.emptyMap();
+    private volatile String activeAccountName;
+
+    AccountIndex(String accountType, SharedPreferences preferences) {
+        this.accountType = accountType;
+        this.preferences = preferences;
+        this.activeAccountName = preferences.getString(KEY_ACTIVE_ACCOUNT + accountType, null);
+    }
+
+    /**
+     * Obtains the index shared by all the Authenticators of the given Account Type, creating it the first time.
+     *
+     * @param context     any context. Only the application context is retained.
+     * @param accountType the Account Type to index.
+     * @return the index for the Account Type.
+     */
+    @SuppressWarnings("MissingPermission")
+    static synchronized AccountIndex forAccountType(Context context, String accountType) {
+        AccountIndex index = instances.get(accountType);
+        if (index == null) {
+            final Context appContext = context.getApplicationContext();
+            final AccountManager accountManager = AccountManager.get(appContext);
+            index = new AccountIndex(accountType, appContext.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE));
+            index.listenForAccountChanges(accountManager);
+            index.onAccountsUpdated(accountManager.getAccountsByType(accountType));
+            instances.put(accountType, index);
+        }
+        return index;
+    }
+
+    /**
+     * Replaces the indexed accounts with the ones of this Account Type among the given accounts.
+     *
+     * @param allAccounts the accounts currently in the system, of any type.
+     */
+    synchronized void onAccountsUpdated(Account[] allAccounts) {
+        final Map<String, Account> accounts = new HashMap<>();
+        for (Account account : allAccounts) {
+            if (accountType.equals(account.type)) {
+                accounts.put(account.name, account);
+            }
+        }
+        DebugLog.d(TAG, "onAccountsUpdated > " + accounts.size() + " accounts indexed");
+        this.accounts = Collections.unmodifiableMap(accounts);
+    }
+
+    /**
+     * Adds an account that was just created, without waiting for the AccountManager to notify the change.
+     */
+    synchronized void add(Account account) {
+        final Map<String, Account> accounts = new HashMap<>(this.accounts);
+        accounts.put(account.name, account);
+        this.accounts = Collections.unmodifiableMap(accounts);
+    }
+
+    /**
+     * Removes an account that was just deleted, without waiting for the AccountManager to notify the change.
+     */
+    synchronized void remove(Account account) {
+        final Map<String, Account> accounts = new HashMap<>(this.accounts);
+        accounts.remove(account.name);
+        this.accounts = Collections.unmodifiableMap(accounts);
+    }
+
+    /**
+     * Looks up an account by name.
+     *
+     * @param name the name of the account.
+     * @return the account or null if there's none with that name.
+     */
+    Account get(String name) {
+        return accounts.get(name);
+    }
+
+    List<Account> getAll() {
+        return new ArrayList<>(accounts.values());
+    }
+
+    int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Obtains the active account. If none was chosen and there's a single account, that one is the active account.
+     *
+     * @return the active account, or null if there are no accounts or there are several and none was chosen.
+     */
+    Account getActiveAccount() {
+        final Map<String, Account> accounts = this.accounts;
+        final String name = activeAccountName;
+        if (name != null && accounts.containsKey(name)) {
+            return accounts.get(name);
+        }
+        return accounts.size() == 1 ? accounts.values().iterator().next() : null;
+    }
+
+    /**
+     * Changes the active account. The choice is remembered across process restarts.
+     *
+     * @param name the name of the account to make active.
+     */
+    void setActiveAccount(String name) {
+        activeAccountName = name;
+        preferences.edit().putString(KEY_ACTIVE_ACCOUNT + accountType, name).apply();
+    }
+
+    @SuppressWarnings("MissingPermission")
+    private void listenForAccountChanges(AccountManager accountManager) {
+        accountManager.addOnAccountsUpdatedListener(new OnAccountsUpdateListener() {
+            @Override
+            public void onAccountsUpdated(Account[] accounts) {
+                AccountIndex.this.onAccountsUpdated(accounts);
+            }
+        }, null, false);
+    }
+}
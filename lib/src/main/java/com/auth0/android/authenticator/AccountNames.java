@@ -0,0 +1,55 @@
+package com.auth0.android.authenticator;
+
+import android.text.TextUtils;
+
+import com.auth0.android.jwt.DecodeException;
+import com.auth0.android.jwt.JWT;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Derives the name of a new Account from the claims of the user's tokens, so that creating it doesn't take a request to
+ * the /userinfo endpoint. The ID Token usually carries the user's name or email, while access tokens at least carry its subject.
+ */
+class AccountNames {
+
+    private static final String[] NAME_CLAIMS = {"name", "email", "nickname"};
+
+    private AccountNames() {
+    }
+
+    /**
+     * Reads the account name from the first of the given tokens that has a name claim, or else from the first that has a subject.
+     *
+     * @param tokens the tokens to read, in order of preference. Null and opaque tokens are skipped.
+     * @return the account name, or null if none of the tokens is a JWT with a usable claim.
+     */
+    static String fromTokens(String... tokens) {
+        final List<JWT> jwts = new ArrayList<>();
+        for (String token : tokens) {
+            if (TextUtils.isEmpty(token)) {
+                continue;
+            }
+            try {
+                jwts.add(new JWT(token));
+            } catch (DecodeException ignored) {
+                //Opaque token
+            }
+        }
+        for (JWT jwt : jwts) {
+            for (String claim : NAME_CLAIMS) {
+                final String name = jwt.getClaim(claim).asString();
+                if (!TextUtils.isEmpty(name)) {
+                    return name;
+                }
+            }
+        }
+        for (JWT jwt : jwts) {
+            if (!TextUtils.isEmpty(jwt.getSubject())) {
+                return jwt.getSubject();
+            }
+        }
+        return null;
+    }
+}
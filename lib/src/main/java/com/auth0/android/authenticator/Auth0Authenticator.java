@@ -10,11 +10,24 @@ import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
 
-import com.auth0.android.Auth0;
 import com.auth0.android.Auth0Exception;
 import com.auth0.android.authentication.AuthenticationAPIClient;
+import com.auth0.android.authentication.AuthenticationException;
+import com.auth0.android.authentication.ParameterBuilder;
+import com.auth0.android.request.ParameterizableRequest;
 import com.auth0.android.result.Credentials;
 
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static android.accounts.AccountManager.ERROR_CODE_NETWORK_ERROR;
+import static android.accounts.AccountManager.ERROR_CODE_REMOTE_EXCEPTION;
 import static android.accounts.AccountManager.ERROR_CODE_UNSUPPORTED_OPERATION;
 import static android.accounts.AccountManager.KEY_BOOLEAN_RESULT;
 import static android.accounts.AccountManager.KEY_ERROR_MESSAGE;
@@ -23,55 +36,272 @@ class Auth0Authenticator extends AbstractAccountAuthenticator {
 
     private String TAG = Auth0Authenticator.class.getSimpleName();
 
-    private final AuthenticationAPIClient apiClient;
+    private static final int MAX_CONCURRENT_REFRESHES = 4;
+    private static final int MAX_QUEUED_REFRESHES = 64;
+    private static final long REFRESH_TIMEOUT_IN_MILLIS = 30 * 1000;
+
+    /**
+     * Option of {@link #getAuthToken(AccountAuthenticatorResponse, Account, String, Bundle)} naming a token the caller
+     * no longer wants, so that it's renewed even if it hasn't expired yet.
+     */
+    static final String KEY_INVALID_TOKEN = "com.auth0.android.authenticator.invalid_token";
+
+    private static final String ERROR_INVALID_GRANT = "invalid_grant";
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+
     private final Context context;
+    private final AuthenticationAPIClient apiClient;
+    private final CredentialStore credentialStore;
+    private final SingleFlight<String> refreshes;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final Connectivity connectivity;
+
+    Auth0Authenticator(Context context, AuthenticationAPIClient apiClient) {
+        this(context, apiClient, new RetryPolicy(), new CircuitBreaker());
+    }
 
-    Auth0Authenticator(Context context) {
+    Auth0Authenticator(Context context, AuthenticationAPIClient apiClient, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this(context, apiClient, retryPolicy, circuitBreaker, Components.connectivity(context));
+    }
+
+    Auth0Authenticator(Context context, AuthenticationAPIClient apiClient, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker, Connectivity connectivity) {
         super(context);
-        this.context = context;
-        Auth0 account = new Auth0(context);
-        account.setOIDCConformant(true);
-        account.setLoggingEnabled(true);
-        this.apiClient = new AuthenticationAPIClient(account);
+        this.context = context.getApplicationContext();
+        this.credentialStore = new CredentialStore(AccountManager.get(context));
+        this.apiClient = apiClient;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.connectivity = connectivity;
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_REFRESHES, MAX_CONCURRENT_REFRESHES, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED_REFRESHES), new DaemonThreadFactory("Auth0-Refresh"));
+        executor.allowCoreThreadTimeOut(true);
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Auth0-RefreshTimeout"));
+        this.refreshes = new SingleFlight<>(executor, timer, REFRESH_TIMEOUT_IN_MILLIS);
     }
 
     @Override
     public Bundle addAccount(AccountAuthenticatorResponse response, String accountType, String authTokenType, String[] requiredFeatures, Bundle options) throws NetworkErrorException {
-        Log.d(TAG, "addAccount (settings screen)");
+        DebugLog.d(TAG, "addAccount (settings screen)");
         response.onError(ERROR_CODE_UNSUPPORTED_OPERATION, "Manual account creation is disabled.");
         return null;
     }
 
 
-    @SuppressWarnings("MissingPermission")
+    /**
+     * Returns the stored token right away if it's still valid. Otherwise the token is renewed on a background thread,
+     * this method returns null to release the binder thread, and the result is delivered through the response.
+     * A still valid token is renewed too if the options name it under {@link #KEY_INVALID_TOKEN}.
+     * <p>
+     * If Auth0 can't be reached the credentials are kept, and the stored token is returned for as long as it's valid.
+     * While the device is offline no request is attempted. Only when Auth0 revokes the refresh token the credentials are cleared.
+     */
     @Override
-    public Bundle getAuthToken(AccountAuthenticatorResponse response, Account account, String authTokenType, Bundle options) throws NetworkErrorException {
-        Log.d(TAG, "getAuthToken");
+    public Bundle getAuthToken(final AccountAuthenticatorResponse response, final Account account, String authTokenType, Bundle options) throws NetworkErrorException {
+        DebugLog.d(TAG, "getAuthToken");
 
-        // Extract the username and password from the Account Manager, and ask
-        // the server for an appropriate AuthToken.
-        final AccountManager am = AccountManager.get(context);
-
-        String authToken = am.peekAuthToken(account, authTokenType);
-        if (!Authenticator.isTokenExpired(am, account, authToken)) {
-            Log.d(TAG, "token from cache");
-            return createAuthBundle(account, authToken);
+        final String invalidToken = options != null ? options.getString(KEY_INVALID_TOKEN) : null;
+        final CredentialRecord record = credentialStore.read(account, authTokenType);
+        if (isUsable(record, invalidToken)) {
+            DebugLog.d(TAG, "token from cache");
+            return createAuthBundle(account, record.accessToken);
         }
 
         //Can we refresh it?
-        String refreshToken = am.getPassword(account);
-        Log.d(TAG, "getPassword returned - " + refreshToken);
-        if (!TextUtils.isEmpty(refreshToken)) {
+        if (record == null || !record.hasRefreshToken()) {
+            Components.metrics().onRefreshFailed(TokenType.fromKey(authTokenType), TokenMetrics.Failure.NO_REFRESH_TOKEN, 0);
+            return createMissingTokenBundle();
+        }
+
+        if (circuitBreaker.isOpen()) {
+            DebugLog.d(TAG, "getAuthToken > Auth0 couldn't be reached recently, not refreshing");
+            Components.metrics().onRefreshFailed(TokenType.fromKey(authTokenType), TokenMetrics.Failure.CIRCUIT_OPEN, 0);
+            deliverFallback(response, account, record, new CircuitOpenException());
+            return null;
+        }
+
+        if (!connectivity.isOnline()) {
+            DebugLog.d(TAG, "getAuthToken > the device is offline, not refreshing");
+            Components.metrics().onRefreshFailed(TokenType.fromKey(authTokenType), TokenMetrics.Failure.OFFLINE, 0);
+            deliverFallback(response, account, record, new IOException("The device is offline."));
+            return null;
+        }
+
+        refreshToken(account, authTokenType, invalidToken, new ResultCallback<String>() {
+            @Override
+            public void onResult(String accessToken) {
+                response.onResult(createAuthBundle(account, accessToken));
+            }
+
+            @Override
+            public void onError(Exception error) {
+                Log.e(TAG, "getAuthToken > failed to refresh the token", error);
+                final TokenMetrics.Failure cause = causeOf(error);
+                if (cause == TokenMetrics.Failure.REJECTED || cause == TokenMetrics.Failure.NO_REFRESH_TOKEN) {
+                    response.onResult(createMissingTokenBundle());
+                    return;
+                }
+                deliverFallback(response, account, credentialStore.read(account, authTokenType), error);
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Delivers the result of a refresh that couldn't reach Auth0: the stored token if it's still valid, or an error otherwise.
+     */
+    private void deliverFallback(AccountAuthenticatorResponse response, Account account, CredentialRecord record, Exception error) {
+        if (record != null && !record.isExpired()) {
+            DebugLog.d(TAG, "the token couldn't be renewed, using the stored one while it's valid");
+            response.onResult(createAuthBundle(account, record.accessToken));
+        } else if (causeOf(error) == TokenMetrics.Failure.OTHER) {
+            response.onError(ERROR_CODE_REMOTE_EXCEPTION, "The token couldn't be refreshed: " + error.getMessage());
+        } else {
+            response.onError(ERROR_CODE_NETWORK_ERROR, "The token couldn't be refreshed because Auth0 couldn't be reached. Try again later.");
+        }
+    }
+
+    /**
+     * Renews the access token in the background, making sure only one request per account and token type hits the network at a time.
+     * Concurrent callers join the request in flight and receive its result. The credentials are read again once the refresh runs,
+     * and written back with a single call once renewed. If Auth0 revoked the refresh token they are cleared instead.
+     * Either way the change is announced to the other processes with {@link TokenChanges}.
+     */
+    private void refreshToken(final Account account, final String authTokenType, final String invalidToken, ResultCallback<String> callback) {
+        final String key = account.type + "/" + account.name + "/" + authTokenType;
+        final TokenType tokenType = TokenType.fromKey(authTokenType);
+        final MeteredCallback meteredCallback = new MeteredCallback(tokenType, callback);
+        meteredCallback.joined = refreshes.execute(key, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                //A refresh that just finished may have already stored a valid token
+                final CredentialRecord record = credentialStore.read(account, authTokenType);
+                if (isUsable(record, invalidToken)) {
+                    DebugLog.d(TAG, "token refreshed by a concurrent call");
+                    return record.accessToken;
+                }
+                final String refreshToken = record != null ? record.refreshToken() : null;
+                if (TextUtils.isEmpty(refreshToken)) {
+                    Components.metrics().onRefreshFailed(tokenType, TokenMetrics.Failure.NO_REFRESH_TOKEN, 0);
+                    throw new Auth0Exception("The refresh token was removed.");
+                }
+
+                final Credentials credentials;
+                try {
+                    credentials = renew(refreshToken, tokenType);
+                } catch (Auth0Exception e) {
+                    if (isRevoked(e)) {
+                        DebugLog.d(TAG, "the refresh token was revoked, clearing the credentials");
+                        final CredentialRecord revoked = record.revoke();
+                        credentialStore.write(account, authTokenType, revoked);
+                        TokenChanges.publish(context, account.type, account.name, authTokenType, revoked.version);
+                    }
+                    throw e;
+                }
+                final long expiresIn = credentials.getExpiresIn() != null ? credentials.getExpiresIn() : 0;
+                final CredentialRecord renewed = record.renew(credentials.getAccessToken(), credentials.getRefreshToken(), expiresIn);
+                credentialStore.write(account, authTokenType, renewed);
+                TokenChanges.publish(context, account.type, account.name, authTokenType, renewed.version);
+                return credentials.getAccessToken();
+            }
+        }, meteredCallback);
+    }
+
+    /**
+     * Exchanges the refresh token for new credentials. Attempts that fail to reach Auth0 are retried as the {@link RetryPolicy}
+     * says, unless the {@link CircuitBreaker} stops them. Errors that Auth0 answered on purpose, like a revoked refresh token, aren't retried.
+     */
+    private Credentials renew(String refreshToken, TokenType tokenType) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                Components.metrics().onRefreshFailed(tokenType, TokenMetrics.Failure.CIRCUIT_OPEN, 0);
+                throw new CircuitOpenException();
+            }
+            DebugLog.d(TAG, "refreshing token, attempt " + attempt);
+            final ParameterizableRequest<Credentials, AuthenticationException> request = apiClient.renewAuth(refreshToken);
+            final String scope = tokenType.getScope();
+            if (scope != null) {
+                request.addParameter(ParameterBuilder.SCOPE_KEY, scope);
+            }
+            final long start = System.nanoTime();
+            boolean reported = false;
             try {
-                Log.d(TAG, "refreshed token");
-                final Credentials credentials = apiClient.renewAuth(refreshToken).execute();
-                am.setAuthToken(account, authTokenType, credentials.getAccessToken());
-                return createAuthBundle(account, credentials.getAccessToken());
-            } catch (Auth0Exception exception) {
-                exception.printStackTrace();
+                final Credentials credentials = request.execute();
+                circuitBreaker.onSuccess();
+                reported = true;
+                Components.metrics().onRefreshSucceeded(tokenType, System.nanoTime() - start);
+                return credentials;
+            } catch (Auth0Exception e) {
+                final TokenMetrics.Failure cause = causeOf(e);
+                Components.metrics().onRefreshFailed(tokenType, cause, System.nanoTime() - start);
+                if (!isTransient(cause)) {
+                    circuitBreaker.onSuccess();
+                    reported = true;
+                    throw e;
+                }
+                circuitBreaker.onFailure();
+                reported = true;
+                if (!retryPolicy.shouldRetry(attempt)) {
+                    throw e;
+                }
+            } finally {
+                //Any other error, e.g. a response that couldn't be parsed, still releases the trial request of the breaker
+                if (!reported) {
+                    circuitBreaker.onFailure();
+                }
             }
+            Thread.sleep(retryPolicy.delayAfter(attempt));
+        }
+    }
+
+    /**
+     * Classifies the reason a refresh failed. I/O errors, even when wrapped in an Auth0 error, mean Auth0 couldn't be reached, and
+     * server errors or 429 Too Many Requests mean it couldn't answer. Any other Auth0 error means the refresh was rejected.
+     */
+    static TokenMetrics.Failure causeOf(Exception error) {
+        if (error instanceof TimeoutException) {
+            return TokenMetrics.Failure.TIMEOUT;
+        }
+        if (error instanceof CircuitOpenException) {
+            return TokenMetrics.Failure.CIRCUIT_OPEN;
+        }
+        if (error instanceof IOException) {
+            return TokenMetrics.Failure.NETWORK;
+        }
+        if (!(error instanceof Auth0Exception)) {
+            return TokenMetrics.Failure.OTHER;
         }
+        for (Throwable cause = error.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return TokenMetrics.Failure.NETWORK;
+            }
+        }
+        if (error instanceof AuthenticationException) {
+            final int statusCode = ((AuthenticationException) error).getStatusCode();
+            if (statusCode >= HTTP_SERVER_ERROR || statusCode == HTTP_TOO_MANY_REQUESTS) {
+                return TokenMetrics.Failure.SERVER_ERROR;
+            }
+        }
+        return TokenMetrics.Failure.REJECTED;
+    }
+
+    private static boolean isTransient(TokenMetrics.Failure cause) {
+        return cause == TokenMetrics.Failure.NETWORK || cause == TokenMetrics.Failure.SERVER_ERROR;
+    }
 
+    /**
+     * Whether Auth0 refused the refresh token itself, e.g. because it was revoked or it expired.
+     */
+    private static boolean isRevoked(Auth0Exception error) {
+        return error instanceof AuthenticationException && ERROR_INVALID_GRANT.equals(((AuthenticationException) error).getCode());
+    }
+
+    private static boolean isUsable(CredentialRecord record, String invalidToken) {
+        return record != null && !record.isExpired() && !record.accessToken.equals(invalidToken);
+    }
+
+    private Bundle createMissingTokenBundle() {
         // No valid tokens found. Launch AuthenticatorActivity.
         Bundle missingTokenBundle = new Bundle();
         missingTokenBundle.putString(KEY_ERROR_MESSAGE, "No tokens found. You should call setToken first.");
@@ -86,6 +316,40 @@ class Auth0Authenticator extends AbstractAccountAuthenticator {
         return result;
     }
 
+    /**
+     * Reports to the metrics how long a caller waited for a refresh it joined, or why a refresh it started failed
+     * before reaching Auth0, e.g. because it timed out. The outcome of the requests to Auth0 is reported by the refresh itself.
+     */
+    private static class MeteredCallback implements ResultCallback<String> {
+        private final TokenType tokenType;
+        private final ResultCallback<String> callback;
+        private final long start = System.nanoTime();
+        private volatile boolean joined;
+
+        MeteredCallback(TokenType tokenType, ResultCallback<String> callback) {
+            this.tokenType = tokenType;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onResult(String result) {
+            if (joined) {
+                Components.metrics().onRefreshWaited(tokenType, System.nanoTime() - start);
+            }
+            callback.onResult(result);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            if (joined) {
+                Components.metrics().onRefreshWaited(tokenType, System.nanoTime() - start);
+            } else if (!(error instanceof Auth0Exception) && !(error instanceof CircuitOpenException)) {
+                Components.metrics().onRefreshFailed(tokenType, causeOf(error), System.nanoTime() - start);
+            }
+            callback.onError(error);
+        }
+    }
+
     @Override
     public String getAuthTokenLabel(String authTokenType) {
         return null;
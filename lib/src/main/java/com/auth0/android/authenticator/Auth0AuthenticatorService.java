@@ -8,7 +8,6 @@ public class Auth0AuthenticatorService extends Service {
 
     @Override
     public IBinder onBind(Intent intent) {
-        Auth0Authenticator authenticator = new Auth0Authenticator(this);
-        return authenticator.getIBinder();
+        return Components.authenticator(this).getIBinder();
     }
 }
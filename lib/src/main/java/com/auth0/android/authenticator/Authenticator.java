@@ -6,17 +6,31 @@ import android.accounts.AccountManager;
 import android.accounts.AccountManagerCallback;
 import android.accounts.AccountManagerFuture;
 import android.app.Activity;
+import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
-import com.auth0.android.Auth0;
 import com.auth0.android.authentication.AuthenticationAPIClient;
 import com.auth0.android.authentication.AuthenticationException;
 import com.auth0.android.callback.AuthenticationCallback;
+import com.auth0.android.result.Credentials;
 import com.auth0.android.result.UserProfile;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 
 /**
  * Class that stores the Auth0 Access Token and knows how to refresh them for use in the Auth0 APIs.
@@ -24,12 +38,16 @@ import com.auth0.android.result.UserProfile;
 public class Authenticator {
 
     private static final String TAG = Authenticator.class.getSimpleName();
-    private static final String AUTH0_TOKEN_TYPE = "default";
-    private static final String KEY_EXPIRATION_TIME = "expiration_time";
 
+    private final Context context;
     private final Activity activity;
+    private final AuthenticationAPIClient apiClient;
     private final AccountManager am;
     private final String accountType;
+    private final CredentialStore credentialStore;
+    private final AccountIndex accountIndex;
+    private final TokenCache tokenCache;
+    private final TokenRefresher tokenRefresher;
 
     /**
      * Creates a new instance of the Authenticator for the given Account Type.
@@ -38,58 +56,331 @@ public class Authenticator {
      * @param accountType the Account Type that represents the shared credentials among this and other applications. Must be the same as the one defined in the 'res/xml/authenticator.xml' file.
      */
     public Authenticator(@NonNull Activity activity, @NonNull String accountType) {
+        this(activity, activity, accountType, null);
+    }
+
+    /**
+     * Creates a new instance of the Authenticator that never shows any UI, for background work like jobs, sync adapters and services.
+     * Only the application context is kept. The tokens are requested to the AccountManager without an Activity and its results
+     * arrive on a background thread, so the returned {@link Task}s can be awaited from a worker thread.
+     *
+     * @param context     any context. Only the application context is retained.
+     * @param accountType the Account Type that represents the shared credentials among this and other applications. Must be the same as the one defined in the 'res/xml/authenticator.xml' file.
+     */
+    public Authenticator(@NonNull Context context, @NonNull String accountType) {
+        this(context, null, accountType, null);
+    }
+
+    /**
+     * Creates a new instance of the Authenticator that requests user profiles through the given API client
+     * instead of the one shared in this process.
+     */
+    Authenticator(@NonNull Activity activity, @NonNull String accountType, @Nullable AuthenticationAPIClient apiClient) {
+        this(activity, activity, accountType, apiClient);
+    }
+
+    /**
+     * @param activity the activity the AccountManager requests are made for, or null to make them without UI.
+     */
+    Authenticator(@NonNull Context context, @Nullable Activity activity, @NonNull String accountType, @Nullable AuthenticationAPIClient apiClient) {
+        this.context = context.getApplicationContext();
         this.activity = activity;
+        this.apiClient = apiClient;
         this.accountType = accountType;
-        this.am = AccountManager.get(activity);
+        this.am = AccountManager.get(this.context);
+        this.credentialStore = new CredentialStore(am);
+        this.accountIndex = AccountIndex.forAccountType(this.context, accountType);
+        this.tokenCache = TokenCache.forAccountType(this.context, accountType);
+        this.tokenRefresher = TokenRefresher.forAccountType(this.context, accountType);
+    }
+
+    /**
+     * Sets the listener that gets the metrics of the token operations, like cache hits, AccountManager calls and refreshes.
+     * It applies to every Authenticator and to the Authenticator Service running in this process. By default nothing is recorded.
+     *
+     * @param metrics the listener, e.g. a {@link TokenMetricsRecorder}, or null to stop recording.
+     */
+    public static void setMetrics(@Nullable TokenMetrics metrics) {
+        Components.setMetrics(metrics != null ? metrics : TokenMetrics.NONE);
+    }
+
+    /**
+     * Encrypts the tokens stored in the accounts with the given AES key, from now on. Tokens stored before are encrypted the next
+     * time they're saved or renewed. Every app that shares the Account Type must set the same key, before using any Authenticator,
+     * e.g. in its Application's onCreate, because the Authenticator Service of any of them may renew the tokens. Accounts can't
+     * be read with a different key or without one, so the user would have to log in again.
+     * It applies to every Authenticator and to the Authenticator Service running in this process. By default the tokens aren't encrypted.
+     *
+     * @param key the AES key, 16, 24 or 32 bytes long, or null to store new tokens without encryption. It's copied, so the array can be cleared afterwards.
+     */
+    public static void setCredentialKey(@Nullable byte[] key) {
+        Components.setCredentialCipher(key != null ? new CredentialCipher(key) : null);
+    }
+
+    /**
+     * Enables the debug logs of this library in this process. They are disabled by default, and never include tokens.
+     *
+     * @param enabled whether to log what the library does.
+     */
+    public static void setLoggingEnabled(boolean enabled) {
+        DebugLog.setEnabled(enabled);
+    }
+
+    /**
+     * Changes how early the tokens are renewed in the background, before they expire. The refresh will start once
+     * less than the given ratio of the token lifetime remains, randomly delayed to avoid many clients refreshing at the same time.
+     * This setting applies to every Authenticator of the same Account Type. Defaults to 0.1, that is when 10% of the lifetime remains.
+     *
+     * @param lifetimeRatio the ratio of the token lifetime, from 0 (inclusive) to 1 (exclusive). Use 0 to disable renewing tokens ahead of their expiration.
+     */
+    public void setRefreshAhead(float lifetimeRatio) {
+        tokenRefresher.setPolicy(new RefreshPolicy(lifetimeRatio));
+    }
+
+    /**
+     * Lets {@link #getToken(String, TokenType)} return a token that expired less than the given time ago right away, while a new one
+     * is obtained in the background, instead of waiting for the refresh. Use it only with APIs that accept recently expired tokens
+     * or that answer 401 Unauthorized so the request can be retried, like {@link TokenInterceptor} does. While the device is offline
+     * the refresh waits until it's back online. Every stale token served is reported to {@link TokenMetrics#onStaleTokenServed(TokenType, long)}.
+     * This setting applies to every Authenticator of the same Account Type. Disabled by default.
+     *
+     * @param gracePeriod how long after their expiration the tokens can still be returned. Use 0 to disable it.
+     * @param unit        the unit of the grace period.
+     */
+    public void setStaleGracePeriod(long gracePeriod, @NonNull TimeUnit unit) {
+        tokenRefresher.setStaleGracePeriod(unit.toMillis(gracePeriod));
+    }
+
+    /**
+     * Lists the names of the Accounts of this Account Type present in the system.
+     *
+     * @return the account names.
+     */
+    public List<String> getAccountNames() {
+        final List<String> names = new ArrayList<>();
+        for (Account account : accountIndex.getAll()) {
+            names.add(account.name);
+        }
+        return names;
+    }
+
+    /**
+     * Obtains the name of the Account used by the methods that don't take one. If no account was chosen with
+     * {@link #setActiveAccount(String)} and there's a single account, that one is active.
+     *
+     * @return the name of the active account, or null if there are no accounts or there are several and none was chosen.
+     */
+    @Nullable
+    public String getActiveAccountName() {
+        final Account account = accountIndex.getActiveAccount();
+        return account == null ? null : account.name;
+    }
+
+    /**
+     * Changes the Account used by the methods that don't take one. The choice applies to every Authenticator
+     * of the same Account Type in this application, and it's remembered across restarts.
+     *
+     * @param accountName the name of an existing account.
+     * @throws IllegalArgumentException if there's no account with that name.
+     */
+    public void setActiveAccount(@NonNull String accountName) {
+        if (accountIndex.get(accountName) == null) {
+            throw new IllegalArgumentException("There is no account named " + accountName + " for this authenticator.");
+        }
+        accountIndex.setActiveAccount(accountName);
     }
 
     /**
      * Obtain a fresh Access Token ready to use against Auth0 APIs. An Account with the token's set must be present in the system.
+     * While the last obtained token is still valid it's returned from memory, synchronously. Tokens about to expire are renewed in the background.
      *
      * @param callback the callback that will get this call result.
      */
-    @SuppressWarnings("MissingPermission")
     public void getToken(final ResultCallback<String> callback) {
-        pickAccount(am, new ResultCallback<Account>() {
+        getToken().then(callback);
+    }
+
+    /**
+     * Obtain a fresh Access Token of the given type ready to use against its API. An Account with the token's of this type set must be present in the system.
+     * While the last obtained token is still valid it's returned from memory, synchronously. Tokens about to expire are renewed in the background.
+     *
+     * @param tokenType the audience and scope of the token.
+     * @param callback  the callback that will get this call result.
+     */
+    public void getToken(@NonNull TokenType tokenType, final ResultCallback<String> callback) {
+        getToken(tokenType).then(callback);
+    }
+
+    /**
+     * Obtain a fresh Access Token of the given type for the given Account. The Account must be present in the system and have tokens of this type set.
+     * While the last obtained token is still valid it's returned from memory, synchronously. Tokens about to expire are renewed in the background.
+     *
+     * @param accountName the name of the account, or null to use the active one.
+     * @param tokenType   the audience and scope of the token.
+     * @param callback    the callback that will get this call result.
+     */
+    public void getToken(@Nullable String accountName, @NonNull TokenType tokenType, final ResultCallback<String> callback) {
+        getToken(accountName, tokenType).then(callback);
+    }
+
+    /**
+     * Obtain a fresh Access Token ready to use against Auth0 APIs, as a {@link Task} that can be combined with other work.
+     * While the last obtained token is still valid the task is already complete when returned.
+     *
+     * @return the task that completes with the token.
+     */
+    public Task<String> getToken() {
+        return getToken(TokenType.DEFAULT);
+    }
+
+    /**
+     * Obtain a fresh Access Token of the given type, as a {@link Task} that can be combined with other work.
+     * While the last obtained token is still valid the task is already complete when returned.
+     *
+     * @param tokenType the audience and scope of the token.
+     * @return the task that completes with the token.
+     */
+    public Task<String> getToken(@NonNull TokenType tokenType) {
+        final Account account = accountIndex.getActiveAccount();
+        return getToken(account == null ? null : account.name, tokenType);
+    }
+
+    /**
+     * Obtain a fresh Access Token of the given type for the given Account, as a {@link Task} that can be combined with other work.
+     * While the last obtained token is still valid, or within the stale grace period, the task is already complete when returned.
+     * Cancelling the task stops waiting for a renewal.
+     *
+     * @param accountName the name of the account, or null to use the active one.
+     * @param tokenType   the audience and scope of the token.
+     * @return the task that completes with the token.
+     */
+    public Task<String> getToken(@Nullable String accountName, @NonNull TokenType tokenType) {
+        final String authTokenType = tokenType.key();
+        if (accountName != null) {
+            final TokenCache.Entry cachedToken = tokenCache.get(TokenCache.key(accountName, authTokenType));
+            if (cachedToken != null) {
+                Components.metrics().onCacheHit(tokenType);
+                tokenRefresher.refreshIfDue(cachedToken);
+                return Task.completed(cachedToken.token);
+            }
+            final TokenCache.Entry staleToken = tokenCache.peek(TokenCache.key(accountName, authTokenType));
+            if (staleToken != null && tokenRefresher.isWithinGracePeriod(staleToken.expiresAt)) {
+                Components.metrics().onStaleTokenServed(tokenType, System.currentTimeMillis() - staleToken.expiresAt);
+                tokenRefresher.refreshIfDue(staleToken);
+                return Task.completed(staleToken.token);
+            }
+        }
+        Components.metrics().onCacheMiss(tokenType);
+
+        final Task<String> task = new Task<>();
+        final long cacheVersion = tokenCache.version();
+        pickAccount(accountName, new ResultCallback<Account>() {
 
             @Override
-            public void onResult(Account account) {
+            public void onResult(final Account account) {
                 //Check for available accounts
                 if (account == null) {
                     IllegalStateException err = new IllegalStateException("There are no accounts for this authenticator. Save a token first!");
-                    callback.onError(err);
+                    task.fail(err);
                     return;
                 }
 
-                //Invalidate token if expired
-                final String authToken = am.peekAuthToken(account, AUTH0_TOKEN_TYPE);
-                boolean isTokenExpired = isTokenExpired(am, account, authToken);
-                if (isTokenExpired) {
-                    Log.d(TAG, "getToken > token has expired.. calling invalidate");
-                    am.invalidateAuthToken(accountType, authToken);
+                //Use the stored token if it's still valid
+                final CredentialRecord record = credentialStore.read(account, authTokenType);
+                if (record != null && !record.isExpired()) {
+                    tokenRefresher.onTokenObtained(account, authTokenType, record, cacheVersion);
+                    task.complete(record.accessToken);
+                    return;
                 }
+                //Or serve the expired one within the grace period, the refresh starts right away
+                if (record != null && !TextUtils.isEmpty(record.accessToken) && tokenRefresher.isWithinGracePeriod(record.expiresAt)) {
+                    DebugLog.d(TAG, "getToken > token has expired, serving it stale while it's renewed");
+                    Components.metrics().onStaleTokenServed(tokenType, System.currentTimeMillis() - record.expiresAt);
+                    tokenRefresher.onTokenObtained(account, authTokenType, record, cacheVersion);
+                    task.complete(record.accessToken);
+                    return;
+                }
+                DebugLog.d(TAG, "getToken > token has expired.. calling invalidate");
+                fetchToken(account, authTokenType, record == null ? null : record.accessToken, cacheVersion, task);
+            }
 
-                //Get the token
-                am.getAuthToken(account, AUTH0_TOKEN_TYPE, null, activity, new AccountManagerCallback<Bundle>() {
-                    @Override
-                    public void run(AccountManagerFuture<Bundle> future) {
-                        try {
-                            final Bundle result = future.getResult();
-                            Log.d(TAG, "getToken Bundle is " + result);
-                            final String accessToken = result.getString(AccountManager.KEY_AUTHTOKEN);
-                            callback.onResult(accessToken);
-                        } catch (Exception e) {
-                            callback.onError(e);
-                        }
-                    }
-                }, null);
+            @Override
+            public void onError(Exception error) {
+                task.fail(error);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Obtain a new Access Token to replace one that the API rejected, e.g. with a 401 response, even if it hasn't expired yet.
+     * If the token was already replaced, the current one is returned without renewing it again.
+     *
+     * @param accountName   the name of the account, or null to use the active one.
+     * @param tokenType     the audience and scope of the token.
+     * @param rejectedToken the token the API rejected.
+     * @return the task that completes with the new token.
+     */
+    public Task<String> renewToken(@Nullable String accountName, @NonNull TokenType tokenType, @NonNull final String rejectedToken) {
+        final String authTokenType = tokenType.key();
+        final Task<String> task = new Task<>();
+        pickAccount(accountName, new ResultCallback<Account>() {
+            @Override
+            public void onResult(Account account) {
+                if (account == null) {
+                    task.fail(new IllegalStateException("There are no accounts for this authenticator. Save a token first!"));
+                    return;
+                }
+                DebugLog.d(TAG, "renewToken > the token was rejected, renewing it");
+                tokenCache.invalidate(TokenCache.key(account.name, authTokenType));
+                fetchToken(account, authTokenType, rejectedToken, tokenCache.version(), task);
             }
 
             @Override
             public void onError(Exception error) {
-                callback.onError(error);
+                task.fail(error);
             }
         });
+        return task;
+    }
+
+    /**
+     * Obtain fresh Access Tokens of several types at once. The tokens that need to be renewed are refreshed in parallel.
+     * If any of the tokens can't be obtained the callback gets the first error.
+     *
+     * @param tokenTypes the audiences and scopes of the tokens.
+     * @param callback   the callback that will get the tokens by type.
+     */
+    public void getTokens(@NonNull final Collection<TokenType> tokenTypes, final ResultCallback<Map<TokenType, String>> callback) {
+        final Set<TokenType> types = new HashSet<>(tokenTypes);
+        final Map<TokenType, String> tokens = new HashMap<>();
+        if (types.isEmpty()) {
+            callback.onResult(tokens);
+            return;
+        }
+        final AtomicBoolean failed = new AtomicBoolean();
+        for (final TokenType tokenType : types) {
+            getToken(tokenType, new ResultCallback<String>() {
+                @Override
+                public void onResult(String token) {
+                    final boolean done;
+                    synchronized (tokens) {
+                        tokens.put(tokenType, token);
+                        done = tokens.size() == types.size();
+                    }
+                    if (done && !failed.get()) {
+                        callback.onResult(tokens);
+                    }
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    if (failed.compareAndSet(false, true)) {
+                        callback.onError(error);
+                    }
+                }
+            });
+        }
     }
 
     /**
@@ -100,111 +391,423 @@ public class Authenticator {
      * @param expiresIn    the time at which the given access token will expire.
      * @param setCallback  the callback that will get this call result.
      */
-    @SuppressWarnings("MissingPermission")
     public void setTokens(final String accessToken, final String refreshToken, final long expiresIn, final ResultCallback<Boolean> setCallback) {
-        pickAccount(am, new ResultCallback<Account>() {
+        setTokens(accessToken, refreshToken, expiresIn).then(setCallback);
+    }
+
+    /**
+     * Saves an Access Token of the given type in a new or existing Account on the system. Tokens of other types are kept.
+     *
+     * @param tokenType    the audience and scope the token was requested with.
+     * @param accessToken  the access token to store.
+     * @param refreshToken the refresh token to store. Will be used to get new tokens of this type in the future.
+     * @param expiresIn    the time at which the given access token will expire.
+     * @param setCallback  the callback that will get this call result.
+     */
+    public void setTokens(@NonNull TokenType tokenType, final String accessToken, final String refreshToken, final long expiresIn, final ResultCallback<Boolean> setCallback) {
+        setTokens(null, tokenType, accessToken, refreshToken, expiresIn).then(setCallback);
+    }
+
+    /**
+     * Saves an Access Token of the given type in the given Account, which is created if it doesn't exist. Tokens of other types are kept.
+     *
+     * @param accountName  the name of the account, or null to use the active one. If there are no accounts, a new one is created
+     *                     and named after the user the token belongs to.
+     * @param tokenType    the audience and scope the token was requested with.
+     * @param accessToken  the access token to store.
+     * @param refreshToken the refresh token to store. Will be used to get new tokens of this type in the future.
+     * @param expiresIn    the time at which the given access token will expire.
+     * @param setCallback  the callback that will get this call result.
+     */
+    public void setTokens(@Nullable String accountName, @NonNull TokenType tokenType, String accessToken, String refreshToken, long expiresIn, ResultCallback<Boolean> setCallback) {
+        setTokens(accountName, tokenType, accessToken, refreshToken, expiresIn).then(setCallback);
+    }
+
+    /**
+     * Saves the Auth0 Access Token in a new or existing Account on the system, as a {@link Task} that can be combined with other work.
+     *
+     * @param accessToken  the access token to store.
+     * @param refreshToken the refresh token to store. Will be used to get new tokens in the future.
+     * @param expiresIn    the time at which the given access token will expire.
+     * @return the task that completes once the tokens are saved.
+     */
+    public Task<Boolean> setTokens(String accessToken, String refreshToken, long expiresIn) {
+        return setTokens(null, TokenType.DEFAULT, accessToken, refreshToken, expiresIn);
+    }
+
+    /**
+     * Saves an Access Token of the given type in the given Account, which is created if it doesn't exist, as a {@link Task}
+     * that can be combined with other work. Tokens of other types are kept.
+     *
+     * @param accountName  the name of the account, or null to use the active one. If there are no accounts, a new one is created
+     *                     and named after the user the token belongs to.
+     * @param tokenType    the audience and scope the token was requested with.
+     * @param accessToken  the access token to store.
+     * @param refreshToken the refresh token to store. Will be used to get new tokens of this type in the future.
+     * @param expiresIn    the time at which the given access token will expire.
+     * @return the task that completes once the tokens are saved.
+     */
+    public Task<Boolean> setTokens(@Nullable String accountName, @NonNull TokenType tokenType, String accessToken, String refreshToken, long expiresIn) {
+        return saveTokens(accountName, tokenType.key(), null, accessToken, refreshToken, expiresIn);
+    }
+
+    /**
+     * Saves the Credentials received in the login call in a new or existing Account on the system. If there are no accounts,
+     * the new one is named after the user the ID Token belongs to, without making any request.
+     *
+     * @param credentials the credentials to store. The access token, refresh token and expiration are kept.
+     * @param setCallback the callback that will get this call result.
+     */
+    public void setCredentials(@NonNull Credentials credentials, ResultCallback<Boolean> setCallback) {
+        setCredentials(null, TokenType.DEFAULT, credentials).then(setCallback);
+    }
+
+    /**
+     * Saves the Credentials of the given type in the given Account, which is created if it doesn't exist. Tokens of other types are kept.
+     *
+     * @param accountName the name of the account, or null to use the active one. If there are no accounts, a new one is created
+     *                    and named after the user the ID Token belongs to.
+     * @param tokenType   the audience and scope the credentials were requested with.
+     * @param credentials the credentials to store. The access token, refresh token and expiration are kept.
+     * @param setCallback the callback that will get this call result.
+     */
+    public void setCredentials(@Nullable String accountName, @NonNull TokenType tokenType, @NonNull Credentials credentials, ResultCallback<Boolean> setCallback) {
+        setCredentials(accountName, tokenType, credentials).then(setCallback);
+    }
+
+    /**
+     * Saves the Credentials received in the login call in a new or existing Account on the system, as a {@link Task}
+     * that can be combined with other work.
+     *
+     * @param credentials the credentials to store. The access token, refresh token and expiration are kept.
+     * @return the task that completes once the credentials are saved.
+     */
+    public Task<Boolean> setCredentials(@NonNull Credentials credentials) {
+        return setCredentials(null, TokenType.DEFAULT, credentials);
+    }
+
+    /**
+     * Saves the Credentials of the given type in the given Account, which is created if it doesn't exist, as a {@link Task}
+     * that can be combined with other work. Tokens of other types are kept.
+     *
+     * @param accountName the name of the account, or null to use the active one. If there are no accounts, a new one is created
+     *                    and named after the user the ID Token belongs to.
+     * @param tokenType   the audience and scope the credentials were requested with.
+     * @param credentials the credentials to store. The access token, refresh token and expiration are kept.
+     * @return the task that completes once the credentials are saved.
+     */
+    public Task<Boolean> setCredentials(@Nullable String accountName, @NonNull TokenType tokenType, @NonNull Credentials credentials) {
+        final long expiresIn = credentials.getExpiresIn() != null ? credentials.getExpiresIn() : 0;
+        return saveTokens(accountName, tokenType.key(), credentials.getIdToken(), credentials.getAccessToken(), credentials.getRefreshToken(), expiresIn);
+    }
+
+    /**
+     * Removes the active Account if exists. The callback gets false if there's no account to remove.
+     *
+     * @param removeCallback the callback that will get this call result.
+     */
+    public void removeAccount(final ResultCallback<Boolean> removeCallback) {
+        removeAccount().then(removeCallback);
+    }
+
+    /**
+     * Removes the given Account if exists. The callback gets false if there's no such account.
+     *
+     * @param accountName    the name of the account, or null to remove the active one.
+     * @param removeCallback the callback that will get this call result.
+     */
+    public void removeAccount(@Nullable String accountName, final ResultCallback<Boolean> removeCallback) {
+        deleteAccount(accountName).then(removeCallback);
+    }
+
+    /**
+     * Removes the active Account if exists, as a {@link Task} that can be combined with other work.
+     *
+     * @return the task that completes once the account is removed, with false if there was no account to remove.
+     */
+    public Task<Boolean> removeAccount() {
+        return deleteAccount(null);
+    }
+
+    /**
+     * Removes the given Account if exists, as a {@link Task} that can be combined with other work.
+     *
+     * @param accountName the name of the account.
+     * @return the task that completes once the account is removed, with false if there was no such account.
+     */
+    public Task<Boolean> removeAccount(@NonNull String accountName) {
+        return deleteAccount(accountName);
+    }
+
+    /**
+     * Signs out the given accounts: removes them from the device and revokes their refresh tokens with Auth0, so they can't
+     * be used anymore even if they were copied. The tokens are read before each account is removed and queued, and the
+     * revocations are sent in parallel, a few at a time, and retried a few times if Auth0 can't be reached. While the device
+     * is offline or Auth0 still can't be reached they stay queued, and are sent once the device is back online. With a credential key the queue is also kept encrypted on the
+     * device, so it's sent the next time the app starts as well.
+     * The Auth0 client must be allowed to revoke its refresh tokens.
+     *
+     * @param accountNames the names of the accounts. The ones that don't exist are skipped.
+     * @param tokenTypes   the types of the tokens the accounts may hold, e.g. {@link TokenType#DEFAULT}. Only their refresh tokens are revoked.
+     * @param listener     the listener that gets the aggregate progress after every step, or null.
+     * @return the task that completes once every account was handled and every revocation was either answered or queued for later.
+     */
+    public Task<SignOutProgress> removeAccounts(@NonNull Collection<String> accountNames, @NonNull Collection<TokenType> tokenTypes, @Nullable SignOutListener listener) {
+        final Set<String> names = new LinkedHashSet<>(accountNames);
+        final SignOutBatch batch = new SignOutBatch(names.size(), listener);
+        final AuthenticationAPIClient apiClient = this.apiClient != null ? this.apiClient : Components.apiClient(context);
+        final TokenRevoker revoker = Components.tokenRevoker(context);
+        DebugLog.d(TAG, "removeAccounts > signing out " + names.size() + " accounts");
+        tokenCache.invalidate();
+        batch.start();
+        for (String name : names) {
+            final Account account = accountIndex.get(name);
+            if (account == null) {
+                batch.onAccountSkipped();
+                continue;
+            }
+            final Set<String> refreshTokens = readRefreshTokens(account, tokenTypes);
+            final Task<Boolean> removal = new Task<>();
+            removal.then(new ResultCallback<Boolean>() {
+                @Override
+                public void onResult(Boolean removed) {
+                    if (!removed) {
+                        batch.onAccountSkipped();
+                        return;
+                    }
+                    batch.onAccountRemoved(refreshTokens.size());
+                    if (!refreshTokens.isEmpty()) {
+                        revoker.revoke(refreshTokens, apiClient.getBaseURL(), apiClient.getClientId(), batch);
+                    }
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    Log.w(TAG, "The account couldn't be removed, its tokens won't be revoked.", error);
+                    batch.onAccountSkipped();
+                }
+            });
+            deleteAccount(account, removal);
+        }
+        return batch.task();
+    }
+
+    /**
+     * Signs out every account of this Account Type, as {@link #removeAccounts(Collection, Collection, SignOutListener)} does.
+     *
+     * @param tokenTypes the types of the tokens the accounts may hold, e.g. {@link TokenType#DEFAULT}. Only their refresh tokens are revoked.
+     * @param listener   the listener that gets the aggregate progress after every step, or null.
+     * @return the task that completes once every account was handled and every revocation was either answered or queued for later.
+     */
+    public Task<SignOutProgress> removeAllAccounts(@NonNull Collection<TokenType> tokenTypes, @Nullable SignOutListener listener) {
+        final List<String> names = new ArrayList<>();
+        for (Account account : accountIndex.getAll()) {
+            names.add(account.name);
+        }
+        return removeAccounts(names, tokenTypes, listener);
+    }
+
+    /*
+     *
+     * INNER METHODS
+     *
+     */
+
+    private Task<Boolean> deleteAccount(@Nullable String accountName) {
+        final Task<Boolean> task = new Task<>();
+        pickAccount(accountName, new ResultCallback<Account>() {
             @Override
             public void onResult(Account account) {
-                long tokenDurationInMillis = expiresIn * 1000;
-                long expirationTime = System.currentTimeMillis() + tokenDurationInMillis;
+                tokenCache.invalidate();
                 if (account == null) {
-                    createAccount(am, accessToken, refreshToken, expirationTime, setCallback);
+                    DebugLog.d(TAG, "removeAccount > there's no account to remove");
+                    task.complete(false);
                     return;
                 }
-                am.setAuthToken(account, AUTH0_TOKEN_TYPE, accessToken);
-                am.setPassword(account, refreshToken);
-                String expString = String.valueOf(expirationTime);
-                am.setUserData(account, KEY_EXPIRATION_TIME, expString);
-                setCallback.onResult(true);
+                deleteAccount(account, task);
             }
 
             @Override
             public void onError(Exception error) {
-                setCallback.onError(error);
+                task.fail(error);
             }
         });
+        return task;
+    }
+
+    @SuppressWarnings({"MissingPermission", "deprecation"})
+    private void deleteAccount(final Account account, final Task<Boolean> task) {
+        final long start = System.nanoTime();
+        am.removeAccount(account, new AccountManagerCallback<Boolean>() {
+            @SuppressWarnings("MissingPermission")
+            @Override
+            public void run(AccountManagerFuture<Boolean> future) {
+                Components.metrics().onAccountManagerCall("removeAccount", System.nanoTime() - start);
+                try {
+                    final Boolean removed = future.getResult();
+                    if (removed) {
+                        accountIndex.remove(account);
+                        TokenChanges.publish(context, accountType, account.name, null, TokenChanges.REMOVED);
+                    }
+                    task.complete(removed);
+                } catch (Exception e) {
+                    task.fail(e);
+                }
+            }
+        }, callbackHandler());
     }
 
     /**
-     * Removes the Account if exists or does nothing.
-     *
-     * @param removeCallback the callback that will get this call result.
+     * Reads the refresh tokens of the given types that the account holds, to revoke them once it's removed.
      */
-    @SuppressWarnings({"MissingPermission", "deprecation"})
-    public void removeAccount(final ResultCallback<Boolean> removeCallback) {
-        pickAccount(am, new ResultCallback<Account>() {
+    private Set<String> readRefreshTokens(Account account, Collection<TokenType> tokenTypes) {
+        final Set<String> refreshTokens = new LinkedHashSet<>();
+        for (TokenType tokenType : tokenTypes) {
+            final CredentialRecord record = credentialStore.read(account, tokenType.key());
+            final String refreshToken = record != null ? record.refreshToken() : null;
+            if (!TextUtils.isEmpty(refreshToken)) {
+                refreshTokens.add(refreshToken);
+            }
+        }
+        return refreshTokens;
+    }
+
+    private Task<Boolean> saveTokens(@Nullable final String accountName, final String authTokenType, final String idToken, final String accessToken, final String refreshToken, final long expiresIn) {
+        final Task<Boolean> task = new Task<>();
+        pickAccount(accountName, new ResultCallback<Account>() {
             @Override
             public void onResult(Account account) {
-                if (account != null) {
-                    am.removeAccount(account, new AccountManagerCallback<Boolean>() {
-                        @SuppressWarnings("MissingPermission")
-                        @Override
-                        public void run(AccountManagerFuture<Boolean> future) {
-                            try {
-                                removeCallback.onResult(future.getResult());
-                            } catch (Exception e) {
-                                removeCallback.onError(e);
-                            }
-                        }
-                    }, null);
+                if (account == null) {
+                    createAccount(am, accountName, authTokenType, idToken, accessToken, refreshToken, expiresIn, task);
+                    return;
                 }
+                tokenCache.invalidate(TokenCache.key(account.name, authTokenType));
+                final CredentialRecord record = credentialStore.save(account, authTokenType, accessToken, refreshToken, expiresIn);
+                TokenChanges.publish(context, accountType, account.name, authTokenType, record.version);
+                task.complete(true);
             }
 
             @Override
             public void onError(Exception error) {
-                removeCallback.onError(error);
+                task.fail(error);
             }
         });
+        return task;
     }
 
-    /*
-     *
-     * INNER METHODS
-     *
+    /**
+     * Asks the Authenticator Service for a token, which renews the given one if it's still the stored token. The authenticator
+     * declares custom tokens, so the AccountManager keeps no token of its own to invalidate first. Without an Activity the request is made without UI and the result is handled on the background callback thread.
      */
+    @SuppressWarnings("MissingPermission")
+    private void fetchToken(final Account account, final String authTokenType, String invalidToken, final long cacheVersion, final Task<String> task) {
+        final Bundle options = new Bundle();
+        options.putString(Auth0Authenticator.KEY_INVALID_TOKEN, invalidToken);
 
+        final long start = System.nanoTime();
+        final AccountManagerCallback<Bundle> callback = new AccountManagerCallback<Bundle>() {
+            @Override
+            public void run(AccountManagerFuture<Bundle> future) {
+                Components.metrics().onAccountManagerCall("getAuthToken", System.nanoTime() - start);
+                try {
+                    final Bundle result = future.getResult();
+                    DebugLog.d(TAG, "getToken > token obtained from the AccountManager");
+                    final String accessToken = result.getString(AccountManager.KEY_AUTHTOKEN);
+                    if (accessToken != null) {
+                        tokenRefresher.onTokenObtained(account, authTokenType, accessToken, cacheVersion);
+                    }
+                    task.complete(accessToken);
+                } catch (Exception e) {
+                    task.fail(e);
+                }
+            }
+        };
+        final AccountManagerFuture<Bundle> request = activity != null
+                ? am.getAuthToken(account, authTokenType, options, activity, callback, null)
+                : am.getAuthToken(account, authTokenType, options, false, callback, callbackHandler());
+        task.onCancel(new Runnable() {
+            @Override
+            public void run() {
+                request.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * The handler the AccountManager callbacks run on: the main thread with an Activity, or a background thread without one.
+     */
+    private Handler callbackHandler() {
+        return activity != null ? null : Components.callbackHandler();
+    }
+
+    /**
+     * Creates the account with the given name or, if none is given, with the name found in the claims of the tokens.
+     * Only when both tokens are opaque the name is requested to the /userinfo endpoint.
+     */
     @SuppressWarnings("MissingPermission")
-    private void createAccount(final AccountManager accountManager, final String accessToken, final String refreshToken, final long expirationTime, final ResultCallback<Boolean> setCallback) {
-        Auth0 auth0 = new Auth0(activity);
-        auth0.setLoggingEnabled(true);
-        auth0.setOIDCConformant(true);
-        final AuthenticationAPIClient apiClient = new AuthenticationAPIClient(auth0);
+    private void createAccount(final AccountManager accountManager, final String accountName, final String authTokenType, String idToken, final String accessToken, final String refreshToken, final long expiresIn, final Task<Boolean> task) {
+        final String name = accountName != null ? accountName : AccountNames.fromTokens(idToken, accessToken);
+        if (name != null) {
+            addAccount(accountManager, name, authTokenType, accessToken, refreshToken, expiresIn);
+            task.complete(true);
+            return;
+        }
 
+        DebugLog.d(TAG, "createAccount > the tokens have no claims to name the account, requesting the user profile");
+        final AuthenticationAPIClient apiClient = this.apiClient != null ? this.apiClient : Components.apiClient(context);
         apiClient.userInfo(accessToken).start(new AuthenticationCallback<UserProfile>() {
             @Override
             public void onSuccess(UserProfile user) {
-                String name = user.getName();
-                final Account account = new Account(name, accountType);
-                Bundle userData = new Bundle();
-                userData.putString(KEY_EXPIRATION_TIME, String.valueOf(expirationTime));
-                accountManager.addAccountExplicitly(account, refreshToken, userData);
-                accountManager.setAuthToken(account, AUTH0_TOKEN_TYPE, accessToken);
-                setCallback.onResult(true);
+                addAccount(accountManager, user.getName(), authTokenType, accessToken, refreshToken, expiresIn);
+                task.complete(true);
             }
 
             @Override
             public void onFailure(AuthenticationException error) {
-                setCallback.onError(error);
+                task.fail(error);
             }
         });
     }
 
+    /**
+     * Adds the account holding the given tokens. If the account already exists, e.g. because another app sharing the
+     * Account Type created it meanwhile, its tokens are replaced instead.
+     */
     @SuppressWarnings("MissingPermission")
-    static boolean isTokenExpired(AccountManager accountManager, Account account, String authToken) {
-        final String expirationTime = accountManager.getUserData(account, KEY_EXPIRATION_TIME);
-        return TextUtils.isEmpty(authToken) || TextUtils.isEmpty(expirationTime) || System.currentTimeMillis() > Long.parseLong(expirationTime);
+    private void addAccount(AccountManager accountManager, String accountName, String authTokenType, String accessToken, String refreshToken, long expiresIn) {
+        final Account account = new Account(accountName, accountType);
+        final CredentialRecord record = CredentialRecord.create(accessToken, refreshToken, expiresIn, null);
+        final long start = System.nanoTime();
+        final boolean added = accountManager.addAccountExplicitly(account, null, CredentialStore.accountData(authTokenType, record));
+        Components.metrics().onAccountManagerCall("addAccountExplicitly", System.nanoTime() - start);
+        if (!added) {
+            DebugLog.d(TAG, "addAccount > the account already exists, replacing its tokens");
+            tokenCache.invalidate(TokenCache.key(account.name, authTokenType));
+            final CredentialRecord saved = credentialStore.save(account, authTokenType, accessToken, refreshToken, expiresIn);
+            TokenChanges.publish(context, accountType, account.name, authTokenType, saved.version);
+        }
+        accountIndex.add(account);
+        if (accountIndex.getActiveAccount() == null) {
+            accountIndex.setActiveAccount(account.name);
+        }
     }
 
-    @SuppressWarnings("MissingPermission")
-    private void pickAccount(final AccountManager accountManager, ResultCallback<Account> callback) {
-        final Account[] accounts = accountManager.getAccountsByType(accountType);
-        if (accounts.length == 0) {
-            Log.d(TAG, "getAccount > no accounts found");
-            callback.onResult(null);
-        } else if (accounts.length == 1) {
-            Log.d(TAG, "getAccount > one account found");
-            callback.onResult(accounts[0]);
+    /**
+     * Looks up the account with the given name, or the active account if no name is given. The callback gets null if
+     * there's no such account, or an error if no name is given and there are several accounts but none is active.
+     */
+    private void pickAccount(String accountName, ResultCallback<Account> callback) {
+        if (accountName != null) {
+            callback.onResult(accountIndex.get(accountName));
+            return;
+        }
+        final Account account = accountIndex.getActiveAccount();
+        if (account == null && accountIndex.size() > 1) {
+            DebugLog.d(TAG, "getAccount > several accounts found but none is active");
+            callback.onError(new IllegalStateException("There are several accounts for this authenticator. Choose one with setActiveAccount first!"));
+            return;
         }
+        callback.onResult(account);
     }
 
 }
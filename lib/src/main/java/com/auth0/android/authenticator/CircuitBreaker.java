@@ -0,0 +1,90 @@
+package com.auth0.android.authenticator;
+
+/**
+ * Stops sending refreshes to Auth0 for a while after several of them failed in a row, so that an outage doesn't turn into
+ * a retry storm from every client. Once the break is over a single trial request is let through: if it succeeds requests
+ * flow again, otherwise the next break lasts twice as long, up to a maximum.
+ */
+class CircuitBreaker {
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    static final long DEFAULT_OPEN_MILLIS = 30 * 1000;
+    static final long DEFAULT_MAX_OPEN_MILLIS = 5 * 60 * 1000;
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long maxOpenMillis;
+
+    private int failures;
+    private long currentOpenMillis;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, DEFAULT_MAX_OPEN_MILLIS);
+    }
+
+    /**
+     * @param failureThreshold the number of consecutive failures that stops the requests.
+     * @param openMillis       how long the requests are stopped the first time.
+     * @param maxOpenMillis    the longest the requests are ever stopped.
+     */
+    CircuitBreaker(int failureThreshold, long openMillis, long maxOpenMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.maxOpenMillis = maxOpenMillis;
+        this.currentOpenMillis = openMillis;
+    }
+
+    /**
+     * Whether requests are stopped right now. It doesn't take the trial request, see {@link #tryAcquire()}.
+     */
+    synchronized boolean isOpen() {
+        return failures >= failureThreshold && (trialInFlight || now() < openUntil);
+    }
+
+    /**
+     * Asks permission to send a request. Once the break is over only one caller gets it, until the outcome of its request is reported.
+     *
+     * @return whether the request can be sent.
+     */
+    synchronized boolean tryAcquire() {
+        if (failures < failureThreshold) {
+            return true;
+        }
+        if (trialInFlight || now() < openUntil) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    /**
+     * Reports that Auth0 answered the request, even if it rejected it.
+     */
+    synchronized void onSuccess() {
+        failures = 0;
+        trialInFlight = false;
+        currentOpenMillis = openMillis;
+    }
+
+    /**
+     * Reports that Auth0 couldn't be reached or failed to answer the request.
+     */
+    synchronized void onFailure() {
+        if (trialInFlight) {
+            trialInFlight = false;
+            currentOpenMillis = Math.min(maxOpenMillis, currentOpenMillis * 2);
+            openUntil = now() + currentOpenMillis;
+            return;
+        }
+        failures++;
+        if (failures == failureThreshold) {
+            openUntil = now() + currentOpenMillis;
+        }
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+}
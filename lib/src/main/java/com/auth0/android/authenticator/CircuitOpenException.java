@@ -0,0 +1,13 @@
+package com.auth0.android.authenticator;
+
+/**
+ * Thrown when a refresh isn't sent because recent refreshes failed and the {@link CircuitBreaker} stopped them for a while.
+ */
+class CircuitOpenException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    CircuitOpenException() {
+        super("Auth0 couldn't be reached recently. The refresh will be attempted again later.");
+    }
+}
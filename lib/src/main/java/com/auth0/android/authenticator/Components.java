@@ -0,0 +1,138 @@
+package com.auth0.android.authenticator;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.auth0.android.Auth0;
+import com.auth0.android.authentication.AuthenticationAPIClient;
+import com.squareup.okhttp.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lazily creates and holds the instances shared across the library in this process. Having a single Auth0 API client
+ * means its HTTP client and JSON serializer are built once, instead of on every bind of the Authenticator Service.
+ */
+final class Components {
+
+    private static final long HTTP_TIMEOUT_IN_SECONDS = 10;
+
+    private static AuthenticationAPIClient apiClient;
+    private static OkHttpClient httpClient;
+    private static Auth0Authenticator authenticator;
+    private static Connectivity connectivity;
+    private static TokenRevoker tokenRevoker;
+    private static Handler callbackHandler;
+    private static volatile TokenMetrics metrics = TokenMetrics.NONE;
+    private static volatile CredentialCipher credentialCipher;
+
+    private Components() {
+    }
+
+    /**
+     * Obtains the Auth0 API client shared in this process, creating it the first time.
+     *
+     * @param context any context. Only the application context is retained.
+     * @return the shared API client.
+     */
+    static synchronized AuthenticationAPIClient apiClient(Context context) {
+        if (apiClient == null) {
+            Auth0 account = new Auth0(context.getApplicationContext());
+            account.setOIDCConformant(true);
+            apiClient = new AuthenticationAPIClient(account);
+        }
+        return apiClient;
+    }
+
+    /**
+     * Obtains the HTTP client shared in this process for the requests the library makes outside the Auth0 API client,
+     * like the token revocations, creating it the first time.
+     *
+     * @return the shared HTTP client.
+     */
+    static synchronized OkHttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient();
+            httpClient.setConnectTimeout(HTTP_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+            httpClient.setReadTimeout(HTTP_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Obtains the connectivity monitor shared in this process, creating it the first time.
+     *
+     * @param context any context. Only the application context is retained.
+     * @return the shared connectivity monitor.
+     */
+    static synchronized Connectivity connectivity(Context context) {
+        if (connectivity == null) {
+            connectivity = new Connectivity(context);
+        }
+        return connectivity;
+    }
+
+    /**
+     * Obtains the token revoker shared in this process, creating it the first time. Creating it sends the revocations
+     * a previous process left queued.
+     *
+     * @param context any context. Only the application context is retained.
+     * @return the shared token revoker.
+     */
+    static synchronized TokenRevoker tokenRevoker(Context context) {
+        if (tokenRevoker == null) {
+            tokenRevoker = TokenRevoker.create(context);
+        }
+        return tokenRevoker;
+    }
+
+    /**
+     * Obtains the handler of the background thread that runs the AccountManager callbacks of the Authenticators without an Activity,
+     * starting the thread the first time.
+     */
+    static synchronized Handler callbackHandler() {
+        if (callbackHandler == null) {
+            final HandlerThread thread = new HandlerThread("Auth0-Callbacks");
+            thread.start();
+            callbackHandler = new Handler(thread.getLooper());
+        }
+        return callbackHandler;
+    }
+
+    /**
+     * Obtains the metrics listener of this process, which does nothing unless one was set.
+     */
+    static TokenMetrics metrics() {
+        return metrics;
+    }
+
+    static void setMetrics(TokenMetrics metrics) {
+        Components.metrics = metrics;
+    }
+
+    /**
+     * Obtains the cipher of the tokens stored in the accounts, or null if the app set no key.
+     */
+    static CredentialCipher credentialCipher() {
+        return credentialCipher;
+    }
+
+    static void setCredentialCipher(CredentialCipher credentialCipher) {
+        Components.credentialCipher = credentialCipher;
+    }
+
+    /**
+     * Obtains the Authenticator exposed by the Authenticator Service, creating it the first time.
+     *
+     * @param context any context. Only the application context is retained.
+     * @return the shared Authenticator.
+     */
+    static synchronized Auth0Authenticator authenticator(Context context) {
+        if (authenticator == null) {
+            final Context appContext = context.getApplicationContext();
+            authenticator = new Auth0Authenticator(appContext, apiClient(appContext));
+        }
+        return authenticator;
+    }
+}
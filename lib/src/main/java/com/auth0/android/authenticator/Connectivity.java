@@ -0,0 +1,97 @@
+package com.auth0.android.authenticator;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tells whether the device is online, and holds the work that needs the network while it isn't. The held work runs
+ * once the system announces that connectivity is back. The connectivity changes are only listened to while there's work waiting.
+ * Without the ACCESS_NETWORK_STATE permission the device is always considered online.
+ */
+class Connectivity {
+
+    private static final String TAG = Connectivity.class.getSimpleName();
+
+    private final Context context;
+    private final ConnectivityManager connectivityManager;
+    private final Map<String, Runnable> pending = new LinkedHashMap<>();
+    private BroadcastReceiver receiver;
+
+    /**
+     * @param context any context. Only the application context is retained.
+     */
+    Connectivity(Context context) {
+        this.context = context.getApplicationContext();
+        this.connectivityManager = (ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    boolean isOnline() {
+        try {
+            final NetworkInfo network = connectivityManager.getActiveNetworkInfo();
+            return network != null && network.isConnected();
+        } catch (SecurityException e) {
+            Log.w(TAG, "Add the ACCESS_NETWORK_STATE permission to defer the refreshes while offline.");
+            return true;
+        }
+    }
+
+    /**
+     * Runs the task right away if the device is online, or once it's back online otherwise. A task held for the same key is replaced.
+     *
+     * @param key  the key that identifies equivalent tasks.
+     * @param task the task that needs the network.
+     */
+    void whenOnline(String key, Runnable task) {
+        synchronized (this) {
+            if (!isOnline()) {
+                DebugLog.d(TAG, "whenOnline > offline, deferring the task");
+                pending.put(key, task);
+                listenForConnectivity();
+                return;
+            }
+        }
+        task.run();
+    }
+
+    private void listenForConnectivity() {
+        if (receiver != null) {
+            return;
+        }
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (isOnline()) {
+                    runPending();
+                }
+            }
+        };
+        context.registerReceiver(receiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    private void runPending() {
+        final List<Runnable> tasks;
+        synchronized (this) {
+            if (receiver == null) {
+                return;
+            }
+            context.unregisterReceiver(receiver);
+            receiver = null;
+            tasks = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        DebugLog.d(TAG, "runPending > back online, running " + tasks.size() + " deferred tasks");
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.auth0.android.authenticator;
+
+import android.os.Build;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Seals the tokens of the {@link CredentialRecord}s with AES-GCM under the key set with {@link Authenticator#setCredentialKey(byte[])}.
+ * The token type is sealed in front of every token and checked when it's opened, so a sealed token can't be moved to the
+ * record of another type. It isn't passed as additional authenticated data because that needs API 19, and a token sealed
+ * before an OS update must still open after it. Each thread reuses its Cipher and its plaintext buffer, and the buffer is
+ * zeroed right after every use.
+ */
+class CredentialCipher {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String ALGORITHM = "AES";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+    private static final int TYPE_LENGTH_BYTES = 2;
+    private static final int KITKAT = 19;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> buffers = new ThreadLocal<>();
+
+    /**
+     * @param key the AES key, 16, 24 or 32 bytes long. It's copied, so the caller can clear the given array.
+     */
+    CredentialCipher(byte[] key) {
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("The key must be 16, 24 or 32 bytes long.");
+        }
+        this.key = new SecretKeySpec(key, ALGORITHM);
+    }
+
+    /**
+     * Encrypts the token.
+     *
+     * @param token         the token to encrypt.
+     * @param authTokenType the type of the token, encrypted along with it.
+     * @return the random IV followed by the encrypted type and token, and their authentication tag.
+     */
+    byte[] seal(String token, String authTokenType) throws GeneralSecurityException {
+        final byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        final Cipher cipher = cipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key, parameters(iv));
+
+        final byte[] type = authTokenType.getBytes(UTF_8);
+        final byte[] plaintext = buffer(TYPE_LENGTH_BYTES + type.length + token.length() * 3);
+        plaintext[0] = (byte) (type.length >> 8);
+        plaintext[1] = (byte) type.length;
+        System.arraycopy(type, 0, plaintext, TYPE_LENGTH_BYTES, type.length);
+        final int length = TYPE_LENGTH_BYTES + type.length + encode(token, plaintext, TYPE_LENGTH_BYTES + type.length);
+        try {
+            final byte[] sealed = Arrays.copyOf(iv, IV_LENGTH + length + TAG_LENGTH);
+            cipher.doFinal(plaintext, 0, length, sealed, IV_LENGTH);
+            return sealed;
+        } finally {
+            Arrays.fill(plaintext, 0, length, (byte) 0);
+        }
+    }
+
+    /**
+     * Decrypts a token sealed with {@link #seal(String, String)}.
+     *
+     * @param sealed        the array holding the sealed token.
+     * @param offset        the position of the sealed token in the array.
+     * @param length        the length of the sealed token.
+     * @param authTokenType the type the token was sealed with.
+     * @return the token.
+     * @throws GeneralSecurityException if the token was sealed with another key or type, or it was tampered with.
+     */
+    String open(byte[] sealed, int offset, int length, String authTokenType) throws GeneralSecurityException {
+        if (length < IV_LENGTH + TAG_LENGTH) {
+            throw new GeneralSecurityException("The sealed token is too short.");
+        }
+        final Cipher cipher = cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, parameters(Arrays.copyOfRange(sealed, offset, offset + IV_LENGTH)));
+
+        final byte[] plaintext = buffer(length);
+        try {
+            final int plaintextLength = cipher.doFinal(sealed, offset + IV_LENGTH, length - IV_LENGTH, plaintext, 0);
+            final int tokenOffset = checkType(plaintext, plaintextLength, authTokenType.getBytes(UTF_8));
+            return new String(plaintext, tokenOffset, plaintextLength - tokenOffset, UTF_8);
+        } finally {
+            Arrays.fill(plaintext, 0, length - IV_LENGTH - TAG_LENGTH, (byte) 0);
+        }
+    }
+
+    private Cipher cipher() throws GeneralSecurityException {
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Obtains the plaintext buffer of this thread, grown to hold at least the given bytes. A token of n chars takes
+     * at most 3n bytes in UTF-8, and the tokens are ASCII in practice.
+     */
+    private byte[] buffer(int minLength) {
+        byte[] buffer = buffers.get();
+        if (buffer == null || buffer.length < minLength) {
+            buffer = new byte[Math.max(1024, minLength)];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes the UTF-8 bytes of the token into the buffer at the given offset, without allocating an intermediate array for ASCII tokens.
+     */
+    private static int encode(String token, byte[] buffer, int offset) {
+        final int length = token.length();
+        for (int i = 0; i < length; i++) {
+            final char c = token.charAt(i);
+            if (c >= 0x80) {
+                final byte[] bytes = token.getBytes(UTF_8);
+                System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+                Arrays.fill(bytes, (byte) 0);
+                return bytes.length;
+            }
+            buffer[offset + i] = (byte) c;
+        }
+        return length;
+    }
+
+    /**
+     * Checks that the decrypted token was sealed for the given type.
+     *
+     * @return the offset of the token in the plaintext.
+     */
+    private static int checkType(byte[] plaintext, int length, byte[] type) throws GeneralSecurityException {
+        final int typeLength = length < TYPE_LENGTH_BYTES ? -1 : (plaintext[0] & 0xFF) << 8 | plaintext[1] & 0xFF;
+        if (typeLength != type.length || TYPE_LENGTH_BYTES + typeLength > length) {
+            throw new GeneralSecurityException("The token was sealed for another token type.");
+        }
+        for (int i = 0; i < typeLength; i++) {
+            if (plaintext[TYPE_LENGTH_BYTES + i] != type[i]) {
+                throw new GeneralSecurityException("The token was sealed for another token type.");
+            }
+        }
+        return TYPE_LENGTH_BYTES + typeLength;
+    }
+
+    private static AlgorithmParameterSpec parameters(byte[] iv) {
+        //GCMParameterSpec was added in KitKat. The older providers take the IV alone and use a 128 bit tag
+        return Build.VERSION.SDK_INT >= KITKAT ? new GCMParameterSpec(TAG_LENGTH * 8, iv) : new IvParameterSpec(iv);
+    }
+}
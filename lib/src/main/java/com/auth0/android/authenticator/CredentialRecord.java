@@ -0,0 +1,240 @@
+package com.auth0.android.authenticator;
+
+import android.util.Base64;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+
+/**
+ * Immutable snapshot of the credentials of one type of token: the access token, the refresh token and their metadata.
+ * They are persisted together as a single value, so a reader never sees a new access token next to a stale expiration time.
+ * <p>
+ * The value is a compact binary record, Base64 encoded because the AccountManager stores strings. With a {@link CredentialCipher}
+ * the tokens are encrypted, and the refresh token is only decrypted when {@link #refreshToken()} is called, which only the
+ * refresh path does. A record read and written again without a new refresh token keeps the encrypted one as is.
+ */
+class CredentialRecord {
+
+    private static final String TAG = CredentialRecord.class.getSimpleName();
+
+    private static final byte FORMAT_VERSION = 2;
+    private static final byte FLAG_SEALED = 1;
+    private static final int NO_VALUE = -1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    final String accessToken;
+    final long issuedAt;
+    final long expiresAt;
+    final long version;
+    private final String refreshToken;
+    private final byte[] sealedRefreshToken;
+    private final CredentialCipher cipher;
+    private final String authTokenType;
+
+    /**
+     * @param accessToken  the access token.
+     * @param refreshToken the refresh token, or null if there's none.
+     * @param issuedAt     the time in milliseconds at which the access token was issued, or 0 if unknown.
+     * @param expiresAt    the time in milliseconds at which the access token should be considered expired.
+     * @param version      the version of the record. Every write of the same credentials stores a greater version.
+     */
+    CredentialRecord(String accessToken, String refreshToken, long issuedAt, long expiresAt, long version) {
+        this(accessToken, refreshToken, null, null, null, issuedAt, expiresAt, version);
+    }
+
+    /**
+     * Creates a record whose refresh token is still encrypted, as read from the account.
+     *
+     * @param sealedRefreshToken the refresh token sealed by the given cipher, or null if the refresh token is in plain text.
+     * @param cipher             the cipher that sealed the refresh token.
+     * @param authTokenType      the type of the token the refresh token was sealed with.
+     */
+    private CredentialRecord(String accessToken, String refreshToken, byte[] sealedRefreshToken, CredentialCipher cipher, String authTokenType,
+                             long issuedAt, long expiresAt, long version) {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.sealedRefreshToken = sealedRefreshToken;
+        this.cipher = cipher;
+        this.authTokenType = authTokenType;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.version = version;
+    }
+
+    /**
+     * Creates the record for credentials just obtained from Auth0. The times of JWTs are read from their claims,
+     * and the ones of opaque tokens are calculated from the given lifetime. Both expire {@link TokenExpiry#CLOCK_SKEW_IN_MILLIS} early.
+     *
+     * @param accessToken  the access token.
+     * @param refreshToken the refresh token, or null if there's none.
+     * @param expiresIn    the lifetime of the access token in seconds.
+     * @param previous     the record these credentials replace, or null if there's none.
+     * @return the new record.
+     */
+    static CredentialRecord create(String accessToken, String refreshToken, long expiresIn, CredentialRecord previous) {
+        final long now = System.currentTimeMillis();
+        final long jwtIssuedAt = TokenExpiry.getIssuedTime(accessToken);
+        final long jwtExpiresAt = TokenExpiry.getExpirationTime(accessToken);
+        final long issuedAt = jwtIssuedAt != TokenExpiry.UNKNOWN ? jwtIssuedAt : now;
+        final long expiresAt = jwtExpiresAt != TokenExpiry.UNKNOWN ? jwtExpiresAt : TokenExpiry.getExpirationTime(now, expiresIn);
+        final long version = previous == null ? now : Math.max(previous.version + 1, now);
+        return new CredentialRecord(accessToken, refreshToken, issuedAt, expiresAt, version);
+    }
+
+    /**
+     * Creates the record that replaces this one after the access token was renewed. The refresh token is kept unless a new one is given.
+     */
+    CredentialRecord renew(String accessToken, String refreshToken, long expiresIn) {
+        final CredentialRecord renewed = create(accessToken, refreshToken, expiresIn, this);
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            return renewed;
+        }
+        return new CredentialRecord(renewed.accessToken, this.refreshToken, sealedRefreshToken, cipher, authTokenType, renewed.issuedAt, renewed.expiresAt, renewed.version);
+    }
+
+    /**
+     * Creates the record that replaces this one once Auth0 revoked the refresh token. It holds no tokens, so a new login is needed.
+     */
+    CredentialRecord revoke() {
+        return new CredentialRecord(null, null, issuedAt, 0, Math.max(version + 1, System.currentTimeMillis()));
+    }
+
+    boolean isExpired() {
+        return accessToken == null || accessToken.isEmpty() || System.currentTimeMillis() > expiresAt;
+    }
+
+    boolean hasRefreshToken() {
+        return sealedRefreshToken != null || refreshToken != null && !refreshToken.isEmpty();
+    }
+
+    /**
+     * Obtains the refresh token, decrypting it if it's sealed. The plain token isn't kept, every call decrypts it again.
+     *
+     * @return the refresh token, or null if there's none or it can't be decrypted.
+     */
+    String refreshToken() {
+        if (sealedRefreshToken == null) {
+            return refreshToken;
+        }
+        try {
+            return cipher.open(sealedRefreshToken, 0, sealedRefreshToken.length, authTokenType);
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, "The refresh token couldn't be decrypted", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the record in the binary format. Its layout is the format version, the flags, the version, issue and expiration
+     * times of the record, the token type, and the access and refresh tokens, each prefixed with its length.
+     *
+     * @param authTokenType the type of the token, which holds its audience and scope.
+     * @param cipher        the cipher to seal the tokens with, or null to store them in plain text.
+     * @return the encoded record.
+     */
+    String encode(String authTokenType, CredentialCipher cipher) {
+        final byte[] type = authTokenType.getBytes(UTF_8);
+        final byte[] access;
+        final byte[] refresh;
+        try {
+            access = cipher == null ? bytes(accessToken) : seal(cipher, accessToken, authTokenType);
+            refresh = sealedRefreshToken != null && cipher == this.cipher && authTokenType.equals(this.authTokenType)
+                    ? sealedRefreshToken : cipher == null ? bytes(refreshToken()) : seal(cipher, refreshToken(), authTokenType);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("The tokens couldn't be encrypted", e);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(2 + 3 * 8 + 2 + type.length + 4 + length(access) + 4 + length(refresh));
+        buffer.put(FORMAT_VERSION).put(cipher != null ? FLAG_SEALED : 0)
+                .putLong(version).putLong(issuedAt).putLong(expiresAt)
+                .putShort((short) type.length).put(type);
+        put(buffer, access);
+        put(buffer, refresh);
+        return Base64.encodeToString(buffer.array(), Base64.NO_WRAP);
+    }
+
+    /**
+     * Reads a record written with {@link #encode(String, CredentialCipher)}.
+     * The access token is decrypted right away, while the refresh token is kept sealed until it's needed.
+     *
+     * @param value         the encoded record.
+     * @param authTokenType the type of the token the record was stored for.
+     * @param cipher        the cipher that sealed the tokens, or null if the app set no key.
+     * @return the record, or null if the value is empty, has an unknown format, or its tokens can't be decrypted with the cipher.
+     */
+    static CredentialRecord decode(String value, String authTokenType, CredentialCipher cipher) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(Base64.decode(value, Base64.NO_WRAP));
+            if (buffer.get() != FORMAT_VERSION) {
+                return null;
+            }
+            final boolean sealed = (buffer.get() & FLAG_SEALED) != 0;
+            final long version = buffer.getLong();
+            final long issuedAt = buffer.getLong();
+            final long expiresAt = buffer.getLong();
+            final byte[] type = new byte[buffer.getShort()];
+            buffer.get(type);
+            if (!authTokenType.equals(new String(type, UTF_8))) {
+                return null;
+            }
+            if (sealed && cipher == null) {
+                Log.w(TAG, "The credentials are encrypted. Set the same key with Authenticator.setCredentialKey in every app that shares the account.");
+                return null;
+            }
+            final int accessLength = buffer.getInt();
+            final String accessToken = accessLength == NO_VALUE ? null : sealed ? cipher.open(buffer.array(), buffer.position(), accessLength, authTokenType)
+                    : new String(buffer.array(), buffer.position(), accessLength, UTF_8);
+            skip(buffer, accessLength);
+            final byte[] refresh = get(buffer);
+            if (!sealed) {
+                return new CredentialRecord(accessToken, refresh == null ? null : new String(refresh, UTF_8), issuedAt, expiresAt, version);
+            }
+            return new CredentialRecord(accessToken, null, refresh, cipher, authTokenType, issuedAt, expiresAt, version);
+        } catch (RuntimeException e) {
+            //Not Base64, or truncated
+            return null;
+        } catch (GeneralSecurityException e) {
+            Log.w(TAG, "The credentials couldn't be decrypted with the key set with Authenticator.setCredentialKey", e);
+            return null;
+        }
+    }
+
+    private static byte[] seal(CredentialCipher cipher, String token, String authTokenType) throws GeneralSecurityException {
+        return token == null || token.isEmpty() ? null : cipher.seal(token, authTokenType);
+    }
+
+    private static byte[] bytes(String token) {
+        return token == null || token.isEmpty() ? null : token.getBytes(UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void put(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value == null ? NO_VALUE : value.length);
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+
+    private static byte[] get(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length == NO_VALUE) {
+            return null;
+        }
+        final byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    private static void skip(ByteBuffer buffer, int length) {
+        if (length != NO_VALUE) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+}
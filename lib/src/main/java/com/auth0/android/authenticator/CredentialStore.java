@@ -0,0 +1,131 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.os.Bundle;
+import android.text.TextUtils;
+
+/**
+ * Reads and writes the {@link CredentialRecord} of each token type of an Account. Every record is kept in a single user data
+ * value, so writing the tokens takes one IPC call to the AccountManager and reading them returns a consistent snapshot.
+ * The tokens are encrypted if the app set a key with {@link Authenticator#setCredentialKey(byte[])}.
+ * Accounts saved by the first version of this library, which kept the refresh token as the account password, the access
+ * token in the AccountManager's token cache and its expiration time in a separate user data value, are migrated the first
+ * time they're read.
+ */
+class CredentialStore {
+
+    private static final String TAG = CredentialStore.class.getSimpleName();
+    private static final String KEY_CREDENTIALS = "credentials/";
+    private static final String KEY_LEGACY_EXPIRATION_TIME = "expiration_time";
+
+    private final AccountManager am;
+
+    CredentialStore(AccountManager accountManager) {
+        this.am = accountManager;
+    }
+
+    /**
+     * Reads the credentials of the given token type.
+     *
+     * @param account       the Account the credentials belong to.
+     * @param authTokenType the type of the token.
+     * @return the credentials, or null if there are none.
+     */
+    @SuppressWarnings("MissingPermission")
+    CredentialRecord read(Account account, String authTokenType) {
+        final long start = System.nanoTime();
+        final String value = am.getUserData(account, KEY_CREDENTIALS + authTokenType);
+        track("getUserData", start);
+        final CredentialRecord record = CredentialRecord.decode(value, authTokenType, Components.credentialCipher());
+        if (record != null || value != null || !TokenType.DEFAULT.key().equals(authTokenType)) {
+            return record;
+        }
+        return migrateLegacy(account);
+    }
+
+    /**
+     * Replaces the credentials of the given token type with a single IPC call.
+     *
+     * @param account       the Account the credentials belong to.
+     * @param authTokenType the type of the token.
+     * @param record        the new credentials.
+     */
+    @SuppressWarnings("MissingPermission")
+    void write(Account account, String authTokenType, CredentialRecord record) {
+        final String value = record.encode(authTokenType, Components.credentialCipher());
+        final long start = System.nanoTime();
+        am.setUserData(account, KEY_CREDENTIALS + authTokenType, value);
+        track("setUserData", start);
+    }
+
+    /**
+     * Stores new tokens of the given type in an existing account. The current credentials are always read first, so the new
+     * record gets a greater version than the stored one even if the clock went back, and keeps the refresh token unless
+     * a new one is given.
+     */
+    CredentialRecord save(Account account, String authTokenType, String accessToken, String refreshToken, long expiresIn) {
+        final CredentialRecord previous = read(account, authTokenType);
+        final CredentialRecord record = previous != null ? previous.renew(accessToken, refreshToken, expiresIn) : CredentialRecord.create(accessToken, refreshToken, expiresIn, null);
+        write(account, authTokenType, record);
+        return record;
+    }
+
+    /**
+     * Creates the user data of a new account holding the given credentials, so it can be added with a single IPC call.
+     */
+    static Bundle accountData(String authTokenType, CredentialRecord record) {
+        final Bundle userData = new Bundle();
+        userData.putString(KEY_CREDENTIALS + authTokenType, record.encode(authTokenType, Components.credentialCipher()));
+        return userData;
+    }
+
+    /**
+     * Moves the credentials of the default token type stored by the first version of this library into a record, and
+     * removes the old values, including the access token the AccountManager kept in plain text in its token cache.
+     *
+     * @return the migrated credentials, or null if the account holds none.
+     */
+    @SuppressWarnings("MissingPermission")
+    private CredentialRecord migrateLegacy(Account account) {
+        final String authTokenType = TokenType.DEFAULT.key();
+        long start = System.nanoTime();
+        final String refreshToken = am.getPassword(account);
+        track("getPassword", start);
+        start = System.nanoTime();
+        final String accessToken = am.peekAuthToken(account, authTokenType);
+        track("peekAuthToken", start);
+        if (TextUtils.isEmpty(accessToken) && TextUtils.isEmpty(refreshToken)) {
+            return null;
+        }
+        DebugLog.d(TAG, "migrateLegacy > moving the credentials of the account into a record");
+        start = System.nanoTime();
+        final String expirationTime = am.getUserData(account, KEY_LEGACY_EXPIRATION_TIME);
+        track("getUserData", start);
+        final long jwtExpiresAt = TokenExpiry.getExpirationTime(accessToken);
+        //The stored time was the lifetime of the token added to the time it was saved
+        final long expiresAt = jwtExpiresAt != TokenExpiry.UNKNOWN ? jwtExpiresAt
+                : TextUtils.isEmpty(expirationTime) ? 0 : Long.parseLong(expirationTime) - TokenExpiry.CLOCK_SKEW_IN_MILLIS;
+        final CredentialRecord record = new CredentialRecord(accessToken, refreshToken, TokenExpiry.getIssuedTime(accessToken), expiresAt, System.currentTimeMillis());
+        write(account, authTokenType, record);
+
+        if (!TextUtils.isEmpty(accessToken)) {
+            start = System.nanoTime();
+            am.invalidateAuthToken(account.type, accessToken);
+            track("invalidateAuthToken", start);
+        }
+        start = System.nanoTime();
+        am.setPassword(account, null);
+        track("setPassword", start);
+        if (expirationTime != null) {
+            start = System.nanoTime();
+            am.setUserData(account, KEY_LEGACY_EXPIRATION_TIME, null);
+            track("setUserData", start);
+        }
+        return record;
+    }
+
+    private static void track(String operation, long start) {
+        Components.metrics().onAccountManagerCall(operation, System.nanoTime() - start);
+    }
+}
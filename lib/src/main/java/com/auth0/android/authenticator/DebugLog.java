@@ -0,0 +1,25 @@
+package com.auth0.android.authenticator;
+
+import android.util.Log;
+
+/**
+ * Debug logging of the library, off unless enabled with {@link Authenticator#setLoggingEnabled(boolean)}.
+ * Messages must never include tokens or other secrets.
+ */
+final class DebugLog {
+
+    private static volatile boolean enabled;
+
+    private DebugLog() {
+    }
+
+    static void setEnabled(boolean enabled) {
+        DebugLog.enabled = enabled;
+    }
+
+    static void d(String tag, String message) {
+        if (enabled) {
+            Log.d(tag, message);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.auth0.android.authenticator;
+
+import java.util.Random;
+
+/**
+ * Decides when a token should be renewed ahead of its expiration. The refresh starts once less than the given ratio
+ * of the token lifetime remains, and it's randomly delayed by up to half of that window so that many
+ * processes or devices holding similar tokens don't all refresh at the same time.
+ */
+class RefreshPolicy {
+
+    static final float DEFAULT_LIFETIME_RATIO = 0.1f;
+    private static final float JITTER_RATIO = 0.5f;
+
+    private final float lifetimeRatio;
+    private final Random random;
+
+    RefreshPolicy(float lifetimeRatio) {
+        this(lifetimeRatio, new Random());
+    }
+
+    RefreshPolicy(float lifetimeRatio, Random random) {
+        if (lifetimeRatio < 0 || lifetimeRatio >= 1) {
+            throw new IllegalArgumentException("The lifetime ratio must be at least 0 and less than 1.");
+        }
+        this.lifetimeRatio = lifetimeRatio;
+        this.random = random;
+    }
+
+    /**
+     * Calculates the time at which a token should be renewed in the background.
+     *
+     * @param issuedAt  the time in milliseconds at which the token was issued, or 0 if unknown.
+     * @param expiresAt the time in milliseconds at which the token expires.
+     * @return the time in milliseconds at which the token should be renewed. If the lifetime of the token is
+     * unknown or refreshing ahead is disabled, it's the same as the expiration time.
+     */
+    long refreshAt(long issuedAt, long expiresAt) {
+        final long lifetime = expiresAt - issuedAt;
+        if (issuedAt <= 0 || lifetime <= 0 || lifetimeRatio == 0) {
+            return expiresAt;
+        }
+        final long window = (long) (lifetime * lifetimeRatio);
+        final long jitter = (long) (random.nextDouble() * window * JITTER_RATIO);
+        return expiresAt - window + jitter;
+    }
+}
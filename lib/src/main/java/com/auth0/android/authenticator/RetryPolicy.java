@@ -0,0 +1,54 @@
+package com.auth0.android.authenticator;
+
+import java.util.Random;
+
+/**
+ * Decides how many times a failed refresh is attempted and how long to wait between attempts. The delay doubles after
+ * every attempt up to a maximum, and the actual delay is picked at random between half and all of it, so that the clients that
+ * failed together don't retry together.
+ */
+class RetryPolicy {
+
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final long DEFAULT_BASE_DELAY_IN_MILLIS = 500;
+    static final long DEFAULT_MAX_DELAY_IN_MILLIS = 4000;
+
+    private final int maxAttempts;
+    private final long baseDelayInMillis;
+    private final long maxDelayInMillis;
+    private final Random random;
+
+    RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_IN_MILLIS, DEFAULT_MAX_DELAY_IN_MILLIS, new Random());
+    }
+
+    RetryPolicy(int maxAttempts, long baseDelayInMillis, long maxDelayInMillis, Random random) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt must be made.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayInMillis = baseDelayInMillis;
+        this.maxDelayInMillis = maxDelayInMillis;
+        this.random = random;
+    }
+
+    /**
+     * @param attempt the number of the attempt that just failed, starting at 1.
+     * @return whether another attempt should be made.
+     */
+    boolean shouldRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Calculates how long to wait before the next attempt.
+     *
+     * @param attempt the number of the attempt that just failed, starting at 1.
+     * @return the delay in milliseconds, between half and all of the backoff for that attempt.
+     */
+    long delayAfter(int attempt) {
+        final long backoff = Math.min(maxDelayInMillis, baseDelayInMillis << Math.min(attempt - 1, 30));
+        final long half = backoff / 2;
+        return half + (long) (random.nextDouble() * (backoff - half));
+    }
+}
@@ -0,0 +1,100 @@
+package com.auth0.android.authenticator;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Counts what a sign out of several accounts has done so far, reports every step to the {@link SignOutListener}
+ * and completes the task once the batch {@link SignOutProgress#isDone() is done}.
+ */
+class SignOutBatch implements TokenRevoker.Listener {
+
+    private final int accounts;
+    private final SignOutListener listener;
+    private final Task<SignOutProgress> task = new Task<>();
+    private int finishedAccounts;
+    private int removedAccounts;
+    private int tokens;
+    private int revokedTokens;
+    private int rejectedTokens;
+    private int deferredTokens;
+
+    SignOutBatch(int accounts, @Nullable SignOutListener listener) {
+        this.accounts = accounts;
+        this.listener = listener;
+    }
+
+    Task<SignOutProgress> task() {
+        return task;
+    }
+
+    /**
+     * Completes the task right away if there are no accounts to sign out.
+     */
+    void start() {
+        if (accounts == 0) {
+            task.complete(snapshot());
+        }
+    }
+
+    /**
+     * An account was removed, and its refresh tokens are about to be revoked.
+     *
+     * @param tokens the number of refresh tokens the account had.
+     */
+    void onAccountRemoved(int tokens) {
+        synchronized (this) {
+            this.tokens += tokens;
+            removedAccounts++;
+            finishedAccounts++;
+        }
+        report();
+    }
+
+    /**
+     * An account wasn't found or couldn't be removed, so its tokens aren't revoked.
+     */
+    void onAccountSkipped() {
+        synchronized (this) {
+            finishedAccounts++;
+        }
+        report();
+    }
+
+    @Override
+    public void onRevoked() {
+        synchronized (this) {
+            revokedTokens++;
+        }
+        report();
+    }
+
+    @Override
+    public void onRejected() {
+        synchronized (this) {
+            rejectedTokens++;
+        }
+        report();
+    }
+
+    @Override
+    public void onDeferred() {
+        synchronized (this) {
+            deferredTokens++;
+        }
+        report();
+    }
+
+    private synchronized SignOutProgress snapshot() {
+        return new SignOutProgress(accounts, finishedAccounts, removedAccounts, tokens, revokedTokens, rejectedTokens, deferredTokens);
+    }
+
+    private void report() {
+        final SignOutProgress progress = snapshot();
+        if (listener != null) {
+            listener.onProgress(progress);
+        }
+        if (progress.isDone()) {
+            task.complete(progress);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.auth0.android.authenticator;
+
+/**
+ * Listener for the progress of a sign out of several accounts. It's called on the thread that finished the step,
+ * either the AccountManager's callback thread or a background thread sending the revocations, so it must return quickly.
+ */
+public interface SignOutListener {
+
+    /**
+     * Called every time an account is handled or a revocation finishes.
+     *
+     * @param progress the aggregate progress so far.
+     */
+    void onProgress(SignOutProgress progress);
+}
@@ -0,0 +1,83 @@
+package com.auth0.android.authenticator;
+
+/**
+ * Aggregate progress of a sign out of several accounts, started with
+ * {@link Authenticator#removeAccounts(java.util.Collection, java.util.Collection, SignOutListener)}.
+ * Each instance is a snapshot; a new one is delivered every time an account or a revocation finishes.
+ */
+public final class SignOutProgress {
+
+    private final int accounts;
+    private final int finishedAccounts;
+    private final int removedAccounts;
+    private final int tokens;
+    private final int revokedTokens;
+    private final int rejectedTokens;
+    private final int deferredTokens;
+
+    SignOutProgress(int accounts, int finishedAccounts, int removedAccounts, int tokens, int revokedTokens, int rejectedTokens, int deferredTokens) {
+        this.accounts = accounts;
+        this.finishedAccounts = finishedAccounts;
+        this.removedAccounts = removedAccounts;
+        this.tokens = tokens;
+        this.revokedTokens = revokedTokens;
+        this.rejectedTokens = rejectedTokens;
+        this.deferredTokens = deferredTokens;
+    }
+
+    /**
+     * The number of accounts to sign out.
+     */
+    public int getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * The number of accounts already removed from the device.
+     */
+    public int getRemovedAccounts() {
+        return removedAccounts;
+    }
+
+    /**
+     * The number of refresh tokens found in the removed accounts, which are all revoked.
+     */
+    public int getTokens() {
+        return tokens;
+    }
+
+    /**
+     * The number of refresh tokens Auth0 revoked.
+     */
+    public int getRevokedTokens() {
+        return revokedTokens;
+    }
+
+    /**
+     * The number of refresh tokens Auth0 refused to revoke, e.g. because the client can't revoke its tokens. They aren't sent again.
+     */
+    public int getRejectedTokens() {
+        return rejectedTokens;
+    }
+
+    /**
+     * The number of refresh tokens that couldn't be sent yet, because the device is offline or Auth0 couldn't be reached.
+     * They stay queued on the device and are revoked once it's back online or the next time the app starts.
+     */
+    public int getDeferredTokens() {
+        return deferredTokens;
+    }
+
+    /**
+     * Whether every account was handled and every revocation was either answered or deferred.
+     */
+    public boolean isDone() {
+        return finishedAccounts == accounts && revokedTokens + rejectedTokens + deferredTokens == tokens;
+    }
+
+    @Override
+    public String toString() {
+        return "SignOutProgress{accounts=" + removedAccounts + "/" + accounts + ", revoked=" + revokedTokens + "/" + tokens
+                + ", rejected=" + rejectedTokens + ", deferred=" + deferredTokens + "}";
+    }
+}
@@ -0,0 +1,140 @@
+package com.auth0.android.authenticator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deduplicates concurrent executions of the same task. While a task is running for a given key,
+ * any other caller asking for that key joins it and receives the same result instead of running it again.
+ * Tasks run on the given executor and are cancelled if they don't finish within the timeout. A cancelled task may not stop
+ * right away, e.g. while it's blocked on network I/O, so its key stays taken until the task actually ends: callers arriving
+ * meanwhile get the same timeout instead of running the task again next to it.
+ *
+ * @param <T> the type of Result produced by the task.
+ */
+class SingleFlight<T> {
+
+    private final ConcurrentMap<String, Call<T>> calls = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final long timeoutInMillis;
+
+    /**
+     * @param executor        the executor to run the tasks on.
+     * @param timer           the executor used to schedule the timeouts.
+     * @param timeoutInMillis the time a task has to finish before it's cancelled and its callers get a {@link TimeoutException}.
+     */
+    SingleFlight(ExecutorService executor, ScheduledExecutorService timer, long timeoutInMillis) {
+        this.executor = executor;
+        this.timer = timer;
+        this.timeoutInMillis = timeoutInMillis;
+    }
+
+    /**
+     * Runs the task for the given key, or joins the one already in flight. This method doesn't block.
+     *
+     * @param key      the key that identifies equivalent tasks.
+     * @param task     the task to run if there's no other in flight for the same key.
+     * @param callback the callback that will get the result of the task, or the exception it threw. If the executor
+     *                 can't take more tasks it gets a {@link RejectedExecutionException}.
+     * @return true if the caller joined a task already in flight, or false if it started a new one.
+     */
+    boolean execute(final String key, final Callable<T> task, ResultCallback<T> callback) {
+        final Call<T> call = new Call<>();
+        final Call<T> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            inFlight.addCallback(callback);
+            return true;
+        }
+        call.addCallback(callback);
+
+        final Future<?> future;
+        try {
+            future = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    T result = null;
+                    Exception error = null;
+                    try {
+                        result = task.call();
+                    } catch (Exception e) {
+                        error = e;
+                    } finally {
+                        calls.remove(key, call);
+                    }
+                    call.complete(result, error);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            calls.remove(key, call);
+            call.complete(null, e);
+            return false;
+        }
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (call.complete(null, new TimeoutException("The task didn't finish within " + timeoutInMillis + " ms."))) {
+                    future.cancel(true);
+                }
+            }
+        }, timeoutInMillis, TimeUnit.MILLISECONDS);
+        return false;
+    }
+
+    private static class Call<T> {
+        private final List<ResultCallback<T>> callbacks = new ArrayList<>();
+        private boolean done;
+        private T result;
+        private Exception error;
+
+        void addCallback(ResultCallback<T> callback) {
+            synchronized (this) {
+                if (!done) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+            deliver(callback);
+        }
+
+        /**
+         * Completes the call and notifies the callbacks, unless it was already completed.
+         *
+         * @return whether this invocation completed the call.
+         */
+        boolean complete(T result, Exception error) {
+            final List<ResultCallback<T>> pending;
+            synchronized (this) {
+                if (done) {
+                    return false;
+                }
+                this.done = true;
+                this.result = result;
+                this.error = error;
+                pending = new ArrayList<>(callbacks);
+                callbacks.clear();
+            }
+            for (ResultCallback<T> callback : pending) {
+                deliver(callback);
+            }
+            return true;
+        }
+
+        private void deliver(ResultCallback<T> callback) {
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onResult(result);
+            }
+        }
+    }
+}
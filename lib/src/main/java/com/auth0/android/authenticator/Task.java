@@ -0,0 +1,305 @@
+package com.auth0.android.authenticator;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle to an asynchronous operation of the {@link Authenticator} that completes with either a result or an error.
+ * Callbacks can be added before or after it completes, and run on the chosen executor. Tasks can be transformed with
+ * {@link #map(Transformation)}, limited with {@link #timeout(long, TimeUnit)} and cancelled. Being a {@link Future},
+ * the result can also be waited for from a background thread. Never wait for it on the main thread, as the
+ * AccountManager delivers its results there, unless the Authenticator was created without an Activity.
+ *
+ * @param <T> the type of Result when the operation is successful.
+ */
+public class Task<T> implements Future<T> {
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Auth0-TaskTimeout"));
+    private static final Executor IMMEDIATE = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private List<Listener<T>> listeners = new ArrayList<>();
+    private boolean done;
+    private boolean cancelled;
+    private T result;
+    private Exception error;
+    private Runnable cancelAction;
+
+    Task() {
+    }
+
+    static <T> Task<T> completed(T result) {
+        final Task<T> task = new Task<>();
+        task.complete(result);
+        return task;
+    }
+
+    /**
+     * Completes the task with the given result, unless it's already complete.
+     *
+     * @return whether this call completed the task.
+     */
+    boolean complete(T result) {
+        return finish(result, null, false);
+    }
+
+    /**
+     * Completes the task with the given error, unless it's already complete.
+     *
+     * @return whether this call completed the task.
+     */
+    boolean fail(Exception error) {
+        return finish(null, error, false);
+    }
+
+    /**
+     * Sets the action that stops the underlying operation when the task is cancelled. It runs right away if the task was already cancelled.
+     */
+    void onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancelAction = action;
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Adds a callback that gets the result or the error on the thread that completes the task, or right away on
+     * the calling thread if it's already complete.
+     *
+     * @param callback the callback that will get this task result.
+     * @return this same task.
+     */
+    public Task<T> then(@NonNull ResultCallback<T> callback) {
+        return then(IMMEDIATE, callback);
+    }
+
+    /**
+     * Adds a callback that gets the result or the error on the given executor.
+     *
+     * @param executor the executor to run the callback on, e.g. one that posts to the main thread.
+     * @param callback the callback that will get this task result. A cancelled task delivers a {@link CancellationException}.
+     * @return this same task.
+     */
+    public Task<T> then(@NonNull Executor executor, @NonNull ResultCallback<T> callback) {
+        final Listener<T> listener = new Listener<>(executor, callback);
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        listener.deliver(result, error);
+        return this;
+    }
+
+    /**
+     * Creates a task that completes with the result of this one transformed, e.g. into a request that carries the token.
+     * Errors are passed along, and cancelling the new task cancels this one.
+     *
+     * @param transformation the transformation to apply to the result. Exceptions it throws fail the new task.
+     * @param <R>            the type of the transformed result.
+     * @return the new task.
+     */
+    public <R> Task<R> map(@NonNull final Transformation<? super T, R> transformation) {
+        final Task<R> mapped = new Task<>();
+        mapped.onCancel(new Runnable() {
+            @Override
+            public void run() {
+                cancel(true);
+            }
+        });
+        then(new ResultCallback<T>() {
+            @Override
+            public void onResult(T result) {
+                try {
+                    mapped.complete(transformation.apply(result));
+                } catch (Exception e) {
+                    mapped.fail(e);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                mapped.fail(error);
+            }
+        });
+        return mapped;
+    }
+
+    /**
+     * Creates a task that completes like this one, or fails with a {@link TimeoutException} if this one takes longer than the given time.
+     * The operation itself is not stopped; cancel this task for that.
+     *
+     * @param timeout the time to wait for the result.
+     * @param unit    the unit of the timeout.
+     * @return the new task.
+     */
+    public Task<T> timeout(long timeout, @NonNull TimeUnit unit) {
+        final Task<T> limited = new Task<>();
+        final ScheduledFuture<?> timeoutFuture = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                limited.fail(new TimeoutException("The operation didn't complete in time."));
+            }
+        }, timeout, unit);
+        then(new ResultCallback<T>() {
+            @Override
+            public void onResult(T result) {
+                timeoutFuture.cancel(false);
+                limited.complete(result);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                timeoutFuture.cancel(false);
+                limited.fail(error);
+            }
+        });
+        return limited;
+    }
+
+    /**
+     * Cancels the task. Its callbacks get a {@link CancellationException} and the underlying operation is stopped when possible.
+     *
+     * @param mayInterruptIfRunning ignored, the operations of the Authenticator don't block any caller thread.
+     * @return whether the task was cancelled, or false if it had already completed.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!finish(null, new CancellationException("The task was cancelled."), true)) {
+            return false;
+        }
+        final Runnable action;
+        synchronized (this) {
+            action = cancelAction;
+        }
+        if (action != null) {
+            action.run();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Waits for the task to complete. Don't call this method on the main thread.
+     */
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    /**
+     * Waits for the task to complete, at most the given time. Don't call this method on the main thread.
+     */
+    @Override
+    public synchronized T get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining = unit.toNanos(timeout);
+        while (!done) {
+            if (remaining <= 0) {
+                throw new TimeoutException("The operation didn't complete in time.");
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return getResult();
+    }
+
+    private T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw (CancellationException) error;
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+
+    private boolean finish(T result, Exception error, boolean cancelled) {
+        final List<Listener<T>> listeners;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.done = true;
+            this.cancelled = cancelled;
+            this.result = result;
+            this.error = error;
+            listeners = this.listeners;
+            this.listeners = null;
+            notifyAll();
+        }
+        for (Listener<T> listener : listeners) {
+            listener.deliver(result, error);
+        }
+        return true;
+    }
+
+    /**
+     * Transforms the result of a task.
+     *
+     * @param <T> the type of the original result.
+     * @param <R> the type of the transformed result.
+     */
+    public interface Transformation<T, R> {
+        /**
+         * @param value the result of the task.
+         * @return the transformed result.
+         * @throws Exception to fail the transformed task.
+         */
+        R apply(T value) throws Exception;
+    }
+
+    private static class Listener<T> {
+        private final Executor executor;
+        private final ResultCallback<T> callback;
+
+        Listener(Executor executor, ResultCallback<T> callback) {
+            this.executor = executor;
+            this.callback = callback;
+        }
+
+        void deliver(final T result, final Exception error) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (error != null) {
+                        callback.onError(error);
+                    } else {
+                        callback.onResult(result);
+                    }
+                }
+            });
+        }
+    }
+}
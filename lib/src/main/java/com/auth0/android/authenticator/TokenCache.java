@@ -0,0 +1,191 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.accounts.OnAccountsUpdateListener;
+import android.content.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory cache of the access tokens obtained through the AccountManager, along with their already parsed expiration time.
+ * A single instance is shared by every Authenticator of the same Account Type in the process. It's cleared
+ * whenever the accounts in the system change, and the tokens replaced by any process are dropped as {@link TokenChanges} announces them.
+ */
+class TokenCache {
+
+    private static final String TAG = TokenCache.class.getSimpleName();
+    private static final Map<String, TokenCache> instances = new HashMap<>();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long version;
+
+    TokenCache() {
+    }
+
+    /**
+     * Obtains the cache shared by all the Authenticators of the given Account Type, creating it the first time.
+     *
+     * @param context     any context. Only the application context is retained.
+     * @param accountType the Account Type the tokens belong to.
+     * @return the cache for the Account Type.
+     */
+    static synchronized TokenCache forAccountType(Context context, String accountType) {
+        TokenCache cache = instances.get(accountType);
+        if (cache == null) {
+            cache = new TokenCache();
+            cache.listenForAccountChanges(AccountManager.get(context.getApplicationContext()));
+            cache.listenForTokenChanges(context, accountType);
+            instances.put(accountType, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Builds the key for the tokens of the given type that belong to the given account.
+     *
+     * @param accountName   the name of the Account.
+     * @param authTokenType the type of the token.
+     * @return the key to store and get the token with.
+     */
+    static String key(String accountName, String authTokenType) {
+        return accountName + "/" + authTokenType;
+    }
+
+    /**
+     * Returns the cached token for the given key if it hasn't expired yet.
+     *
+     * @param key the key the token was stored with.
+     * @return the valid token entry or null if there's none.
+     */
+    Entry get(String key) {
+        final Entry entry = entries.get(key);
+        if (entry == null || System.currentTimeMillis() > entry.expiresAt) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached token for the given key, even if it has already expired.
+     *
+     * @param key the key the token was stored with.
+     * @return the token entry or null if there's none.
+     */
+    Entry peek(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * The current version of the cache. It changes every time the cache is invalidated, and should be
+     * read before obtaining a value that's going to be stored with {@link #put(String, Entry, long)}.
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Stores the token unless the cache was invalidated after the given version was read, which means the value may be stale.
+     *
+     * @param key     the key to store the token with.
+     * @param entry   the token to store.
+     * @param version the version of the cache read before the token was obtained.
+     * @return whether the token was stored or not.
+     */
+    synchronized boolean put(String key, Entry entry, long version) {
+        if (this.version != version) {
+            DebugLog.d(TAG, "put > cache was invalidated, discarding token");
+            return false;
+        }
+        entries.put(key, entry);
+        return true;
+    }
+
+    /**
+     * Removes the cached token for the given key.
+     *
+     * @param key the key the token was stored with.
+     */
+    synchronized void invalidate(String key) {
+        version++;
+        entries.remove(key);
+    }
+
+    /**
+     * Removes every cached token.
+     */
+    synchronized void invalidate() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * Removes the cached tokens of the given account and type that were obtained from credentials older than the given version.
+     *
+     * @param accountHash   the hash of the name of the Account, as given by {@link TokenChanges#accountHash(String)}.
+     * @param authTokenType the type of the tokens, or null to match every type.
+     * @param version       the version of the credentials that replaced the tokens.
+     */
+    synchronized void invalidateOlderThan(int accountHash, String authTokenType, long version) {
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            final Entry entry = cached.getValue();
+            if (TokenChanges.accountHash(entry.accountName) == accountHash && (authTokenType == null || authTokenType.equals(entry.authTokenType))
+                    && entry.version < version) {
+                DebugLog.d(TAG, "invalidateOlderThan > the credentials changed, invalidating the token");
+                invalidate(cached.getKey());
+            }
+        }
+    }
+
+    /**
+     * Invalidates the tokens replaced by any process sharing the given Account Type as they are announced.
+     */
+    void listenForTokenChanges(Context context, String accountType) {
+        TokenChanges.listen(context, accountType, new TokenChanges.Listener() {
+            @Override
+            public void onTokensChanged(int accountHash, String authTokenType, long version) {
+                invalidateOlderThan(accountHash, authTokenType, version);
+            }
+        });
+    }
+
+    @SuppressWarnings("MissingPermission")
+    private void listenForAccountChanges(AccountManager accountManager) {
+        accountManager.addOnAccountsUpdatedListener(new OnAccountsUpdateListener() {
+            @Override
+            public void onAccountsUpdated(Account[] accounts) {
+                DebugLog.d(TAG, "onAccountsUpdated > invalidating cache");
+                invalidate();
+            }
+        }, null, false);
+    }
+
+    static class Entry {
+        final String accountName;
+        final String authTokenType;
+        final String token;
+        final long expiresAt;
+        final long refreshAt;
+        final long version;
+
+        /**
+         * @param accountName   the name of the Account the token belongs to.
+         * @param authTokenType the type of the token.
+         * @param token         the access token.
+         * @param expiresAt     the time in milliseconds at which the token expires.
+         * @param refreshAt     the time in milliseconds after which the token should be renewed in the background.
+         * @param version       the version of the credentials the token was read from.
+         */
+        Entry(String accountName, String authTokenType, String token, long expiresAt, long refreshAt, long version) {
+            this.accountName = accountName;
+            this.authTokenType = authTokenType;
+            this.token = token;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+            this.version = version;
+        }
+    }
+}
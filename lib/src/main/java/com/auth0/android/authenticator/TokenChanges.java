@@ -0,0 +1,91 @@
+package com.auth0.android.authenticator;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+/**
+ * Tells every process sharing the Account Type that the credentials of an account changed, so that each one drops only the
+ * cached tokens that were replaced instead of reading the credentials again through the AccountManager. Each change carries
+ * the version of the new credentials, and only cached tokens obtained from an older version are invalidated.
+ * <p>
+ * The changes travel as a broadcast to the receivers registered while the apps run. It holds no tokens, and the account
+ * is identified by the hash of its name. Both sending and receiving the broadcast require {@link #PERMISSION}, a signature
+ * permission declared by this library, so only the apps signed with the same key as the app that declared it take part.
+ */
+class TokenChanges {
+
+    private static final String TAG = TokenChanges.class.getSimpleName();
+
+    static final String ACTION_TOKENS_CHANGED = "com.auth0.android.authenticator.action.TOKENS_CHANGED";
+    static final String PERMISSION = "com.auth0.android.authenticator.permission.TOKENS_CHANGED";
+    private static final String EXTRA_ACCOUNT_TYPE = "com.auth0.android.authenticator.extra.ACCOUNT_TYPE";
+    private static final String EXTRA_ACCOUNT_HASH = "com.auth0.android.authenticator.extra.ACCOUNT_HASH";
+    private static final String EXTRA_AUTH_TOKEN_TYPE = "com.auth0.android.authenticator.extra.AUTH_TOKEN_TYPE";
+    private static final String EXTRA_VERSION = "com.auth0.android.authenticator.extra.VERSION";
+
+    /**
+     * The version of a change that removed the account. It replaces the tokens of every version.
+     */
+    static final long REMOVED = Long.MAX_VALUE;
+
+    /**
+     * Receives the changes published by any process, including this one.
+     */
+    interface Listener {
+        /**
+         * @param accountHash   the hash of the name of the Account whose credentials changed.
+         * @param authTokenType the type of the tokens that changed, or null if all of them did.
+         * @param version       the version of the new credentials.
+         */
+        void onTokensChanged(int accountHash, String authTokenType, long version);
+    }
+
+    private TokenChanges() {
+    }
+
+    /**
+     * Announces that the credentials of the given type were replaced.
+     *
+     * @param context       any context.
+     * @param accountType   the Account Type the credentials belong to.
+     * @param accountName   the name of the Account.
+     * @param authTokenType the type of the tokens, or null if the tokens of every type changed.
+     * @param version       the version of the new credentials, or {@link #REMOVED}.
+     */
+    static void publish(Context context, String accountType, String accountName, String authTokenType, long version) {
+        DebugLog.d(TAG, "publish > credentials changed, version " + version);
+        final Intent intent = new Intent(ACTION_TOKENS_CHANGED)
+                .putExtra(EXTRA_ACCOUNT_TYPE, accountType)
+                .putExtra(EXTRA_ACCOUNT_HASH, accountHash(accountName))
+                .putExtra(EXTRA_AUTH_TOKEN_TYPE, authTokenType)
+                .putExtra(EXTRA_VERSION, version)
+                .addFlags(Intent.FLAG_RECEIVER_REGISTERED_ONLY);
+        context.sendBroadcast(intent, PERMISSION);
+    }
+
+    /**
+     * Starts delivering the changes of the given Account Type to the listener, for as long as the process lives.
+     *
+     * @param context     any context. Only the application context is retained.
+     * @param accountType the Account Type to listen to.
+     * @param listener    the listener of the changes.
+     */
+    static void listen(Context context, final String accountType, final Listener listener) {
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (!accountType.equals(intent.getStringExtra(EXTRA_ACCOUNT_TYPE))) {
+                    return;
+                }
+                final long version = intent.getLongExtra(EXTRA_VERSION, REMOVED);
+                listener.onTokensChanged(intent.getIntExtra(EXTRA_ACCOUNT_HASH, 0), intent.getStringExtra(EXTRA_AUTH_TOKEN_TYPE), version);
+            }
+        }, new IntentFilter(ACTION_TOKENS_CHANGED), PERMISSION, null);
+    }
+
+    static int accountHash(String accountName) {
+        return accountName.hashCode();
+    }
+}
@@ -0,0 +1,126 @@
+package com.auth0.android.authenticator;
+
+import com.auth0.android.jwt.DecodeException;
+import com.auth0.android.jwt.JWT;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the issue and expiration time of the tokens from their own claims when they are JWTs, so they don't
+ * need to be read from the AccountManager. Each token is decoded only once, and the values are kept in memory under
+ * the SHA-256 hash of the token, so the tokens themselves aren't retained. Opaque tokens, JWTs without those claims
+ * and missing tokens report {@link #UNKNOWN}.
+ */
+class TokenExpiry {
+
+    static final long UNKNOWN = 0;
+
+    /**
+     * The 'exp' claim is set by the server's clock, which may be ahead of the device's. Tokens are considered expired
+     * this long before their claim says, so they're renewed before the server starts rejecting them.
+     */
+    static final long CLOCK_SKEW_IN_MILLIS = 60 * 1000;
+
+    private static final int MAX_DECODED_TOKENS = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Claims NO_CLAIMS = new Claims(UNKNOWN, UNKNOWN);
+    private static final Map<ByteBuffer, Claims> decoded = new LinkedHashMap<ByteBuffer, Claims>(MAX_DECODED_TOKENS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Claims> eldest) {
+            return size() > MAX_DECODED_TOKENS;
+        }
+    };
+    private static final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    };
+
+    private TokenExpiry() {
+    }
+
+    /**
+     * Obtains the time at which the token expires, already adjusted for clock skew.
+     *
+     * @param token the token to read, or null.
+     * @return the time in milliseconds at which the token should be considered expired, or {@link #UNKNOWN}.
+     */
+    static long getExpirationTime(String token) {
+        final long expiresAt = claims(token).expiresAt;
+        return expiresAt == UNKNOWN ? UNKNOWN : expiresAt - CLOCK_SKEW_IN_MILLIS;
+    }
+
+    /**
+     * Obtains the time at which a token with the given lifetime, obtained now, expires, adjusted for clock skew the same way
+     * as the times read from the claims. Used for the tokens whose expiration time isn't in the token itself.
+     *
+     * @param now              the time in milliseconds at which the token was obtained.
+     * @param expiresInSeconds the lifetime of the token in seconds.
+     * @return the time in milliseconds at which the token should be considered expired.
+     */
+    static long getExpirationTime(long now, long expiresInSeconds) {
+        return now + expiresInSeconds * 1000 - CLOCK_SKEW_IN_MILLIS;
+    }
+
+    /**
+     * Obtains the time at which the token was issued.
+     *
+     * @param token the token to read, or null.
+     * @return the time in milliseconds at which the token was issued, or {@link #UNKNOWN}.
+     */
+    static long getIssuedTime(String token) {
+        return claims(token).issuedAt;
+    }
+
+    private static Claims claims(String token) {
+        if (token == null || token.isEmpty()) {
+            return NO_CLAIMS;
+        }
+        final ByteBuffer key = ByteBuffer.wrap(digests.get().digest(token.getBytes(UTF_8)));
+        synchronized (decoded) {
+            final Claims claims = decoded.get(key);
+            if (claims != null) {
+                return claims;
+            }
+        }
+        final Claims claims = decode(token);
+        synchronized (decoded) {
+            decoded.put(key, claims);
+        }
+        return claims;
+    }
+
+    private static Claims decode(String token) {
+        try {
+            final JWT jwt = new JWT(token);
+            return new Claims(toMillis(jwt.getIssuedAt()), toMillis(jwt.getExpiresAt()));
+        } catch (DecodeException e) {
+            return NO_CLAIMS;
+        }
+    }
+
+    private static long toMillis(Date date) {
+        return date == null ? UNKNOWN : date.getTime();
+    }
+
+    private static class Claims {
+        private final long issuedAt;
+        private final long expiresAt;
+
+        Claims(long issuedAt, long expiresAt) {
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
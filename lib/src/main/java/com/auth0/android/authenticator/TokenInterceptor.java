@@ -0,0 +1,143 @@
+package com.auth0.android.authenticator;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * OkHttp interceptor that authorizes every request with a fresh Access Token obtained from the {@link Authenticator}.
+ * While the token is cached in memory no IPC call is made. When the API answers 401 Unauthorized the token is renewed
+ * and the request is sent once more with the new token. Requests rejected with the same token meanwhile wait for that
+ * single renewal instead of starting their own.
+ * <p>
+ * Add it to the OkHttpClient that calls your API with {@code client.interceptors().add(new TokenInterceptor(authenticator))}.
+ * The requests must not run on the main thread.
+ */
+public class TokenInterceptor implements Interceptor {
+
+    private static final String TAG = TokenInterceptor.class.getSimpleName();
+    private static final String HEADER_AUTHORIZATION = "Authorization";
+    private static final int HTTP_UNAUTHORIZED = 401;
+    private static final long TOKEN_TIMEOUT_IN_MILLIS = 30 * 1000;
+
+    private final Authenticator authenticator;
+    private final String accountName;
+    private final TokenType tokenType;
+    private final Map<String, Task<String>> renewals = new HashMap<>();
+
+    /**
+     * Creates an interceptor that authorizes the requests with the default token of the active account.
+     *
+     * @param authenticator the authenticator to obtain the tokens from.
+     */
+    public TokenInterceptor(@NonNull Authenticator authenticator) {
+        this(authenticator, null, TokenType.DEFAULT);
+    }
+
+    /**
+     * Creates an interceptor that authorizes the requests with the token of the given type and account.
+     *
+     * @param authenticator the authenticator to obtain the tokens from.
+     * @param accountName   the name of the account, or null to use the active one.
+     * @param tokenType     the audience and scope of the token the API expects.
+     */
+    public TokenInterceptor(@NonNull Authenticator authenticator, @Nullable String accountName, @NonNull TokenType tokenType) {
+        this.authenticator = authenticator;
+        this.accountName = accountName;
+        this.tokenType = tokenType;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        final String token = await(authenticator.getToken(accountName, tokenType));
+        final Response response = chain.proceed(authorize(request, token));
+        if (response.code() != HTTP_UNAUTHORIZED) {
+            return response;
+        }
+
+        DebugLog.d(TAG, "intercept > the token was rejected, retrying with a renewed one");
+        response.body().close();
+        return chain.proceed(authorize(request, renew(token)));
+    }
+
+    /**
+     * Obtains the token that replaces the rejected one. Only the first caller for a rejected token renews it; the
+     * others join that renewal. Callers that were rejected with a token that was already replaced get the current one.
+     */
+    private String renew(final String rejectedToken) throws IOException {
+        final String currentToken = await(authenticator.getToken(accountName, tokenType));
+        if (!currentToken.equals(rejectedToken)) {
+            return currentToken;
+        }
+
+        Task<String> inFlight;
+        boolean started = false;
+        synchronized (renewals) {
+            inFlight = renewals.get(rejectedToken);
+            if (inFlight == null) {
+                inFlight = authenticator.renewToken(accountName, tokenType, rejectedToken);
+                renewals.put(rejectedToken, inFlight);
+                started = true;
+            }
+        }
+        final Task<String> renewal = inFlight;
+        if (started) {
+            renewal.then(new ResultCallback<String>() {
+                @Override
+                public void onResult(String result) {
+                    forget();
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    forget();
+                }
+
+                private void forget() {
+                    synchronized (renewals) {
+                        if (renewals.get(rejectedToken) == renewal) {
+                            renewals.remove(rejectedToken);
+                        }
+                    }
+                }
+            });
+        }
+        return await(renewal);
+    }
+
+    private static Request authorize(Request request, String token) {
+        return request.newBuilder()
+                .header(HEADER_AUTHORIZATION, "Bearer " + token)
+                .build();
+    }
+
+    private static String await(Task<String> task) throws IOException {
+        final String token;
+        try {
+            token = task.get(TOKEN_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the access token.");
+        } catch (ExecutionException e) {
+            throw new IOException("The access token couldn't be obtained.", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for the access token.", e);
+        }
+        if (token == null) {
+            throw new IOException("There is no access token. Save the tokens first!");
+        }
+        return token;
+    }
+}
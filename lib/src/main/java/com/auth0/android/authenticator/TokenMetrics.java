@@ -0,0 +1,115 @@
+package com.auth0.android.authenticator;
+
+/**
+ * Listener for what the library does while it obtains and renews tokens, to feed your own metrics or tracing.
+ * Override the methods you're interested in; the others do nothing. The methods are called on the thread doing the work,
+ * some of them while serving a cached token, so they must return quickly and never block.
+ * Install it with {@link Authenticator#setMetrics(TokenMetrics)}. See {@link TokenMetricsRecorder} for a ready to use implementation.
+ * None of the methods receive tokens or other secrets.
+ */
+public abstract class TokenMetrics {
+
+    static final TokenMetrics NONE = new TokenMetrics() {
+    };
+
+    /**
+     * The reason a refresh failed.
+     */
+    public enum Failure {
+        /**
+         * Auth0 couldn't be reached.
+         */
+        NETWORK,
+        /**
+         * Auth0 answered with a server error or asked to slow down.
+         */
+        SERVER_ERROR,
+        /**
+         * The refresh didn't finish in time.
+         */
+        TIMEOUT,
+        /**
+         * Auth0 rejected the refresh token, e.g. because it was revoked.
+         */
+        REJECTED,
+        /**
+         * There's no refresh token to renew the access token with.
+         */
+        NO_REFRESH_TOKEN,
+        /**
+         * The refresh wasn't attempted because the recent ones failed to reach Auth0.
+         */
+        CIRCUIT_OPEN,
+        /**
+         * The refresh wasn't attempted because the device is offline.
+         */
+        OFFLINE,
+        /**
+         * Any other error, e.g. too many refreshes queued.
+         */
+        OTHER
+    }
+
+    /**
+     * A token was served from the memory cache, without any IPC call.
+     *
+     * @param tokenType the type of the token.
+     */
+    public void onCacheHit(TokenType tokenType) {
+    }
+
+    /**
+     * A token wasn't in the memory cache and had to be read from the AccountManager.
+     *
+     * @param tokenType the type of the token.
+     */
+    public void onCacheMiss(TokenType tokenType) {
+    }
+
+    /**
+     * A call to the AccountManager finished. Asynchronous calls, like getAuthToken, report the time until their result arrived.
+     *
+     * @param operation     the name of the AccountManager method, e.g. "getUserData".
+     * @param durationNanos how long the call took, in nanoseconds.
+     */
+    public void onAccountManagerCall(String operation, long durationNanos) {
+    }
+
+    /**
+     * A token was renewed with Auth0.
+     *
+     * @param tokenType     the type of the token.
+     * @param durationNanos how long the request to Auth0 took, in nanoseconds.
+     */
+    public void onRefreshSucceeded(TokenType tokenType, long durationNanos) {
+    }
+
+    /**
+     * An attempt to renew a token failed. Attempts that are retried afterwards are reported too.
+     *
+     * @param tokenType     the type of the token.
+     * @param cause         the reason of the failure.
+     * @param durationNanos how long the attempt took, in nanoseconds.
+     */
+    public void onRefreshFailed(TokenType tokenType, Failure cause, long durationNanos) {
+    }
+
+    /**
+     * A caller found the token already being renewed and waited for that refresh instead of starting another one.
+     *
+     * @param tokenType     the type of the token.
+     * @param durationNanos how long the caller waited, in nanoseconds.
+     */
+    public void onRefreshWaited(TokenType tokenType, long durationNanos) {
+    }
+
+    /**
+     * An expired token was served within the stale grace period while it's renewed in the background.
+     * See {@link Authenticator#setStaleGracePeriod(long, java.util.concurrent.TimeUnit)}.
+     *
+     * @param tokenType     the type of the token.
+     * @param staleForMillis how long ago the token expired, in milliseconds.
+     */
+    public void onStaleTokenServed(TokenType tokenType, long staleForMillis) {
+    }
+}
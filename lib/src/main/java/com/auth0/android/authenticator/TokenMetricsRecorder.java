@@ -0,0 +1,155 @@
+package com.auth0.android.authenticator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link TokenMetrics} that keeps counters and a refresh latency histogram in memory, lock-free. Read them whenever you
+ * want to report them, e.g. periodically to your analytics.
+ */
+public class TokenMetricsRecorder extends TokenMetrics {
+
+    /**
+     * The upper bounds, in milliseconds, of the buckets of the refresh latency histogram. A last bucket holds the slower refreshes.
+     */
+    public static final long[] REFRESH_LATENCY_BUCKETS_IN_MILLIS = {50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong accountManagerCalls = new AtomicLong();
+    private final AtomicLong accountManagerNanos = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLongArray refreshLatencies = new AtomicLongArray(REFRESH_LATENCY_BUCKETS_IN_MILLIS.length + 1);
+    private final AtomicLongArray failures = new AtomicLongArray(Failure.values().length);
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong staleTokens = new AtomicLong();
+
+    @Override
+    public void onCacheHit(TokenType tokenType) {
+        cacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void onCacheMiss(TokenType tokenType) {
+        cacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public void onAccountManagerCall(String operation, long durationNanos) {
+        accountManagerCalls.incrementAndGet();
+        accountManagerNanos.addAndGet(durationNanos);
+    }
+
+    @Override
+    public void onRefreshSucceeded(TokenType tokenType, long durationNanos) {
+        refreshes.incrementAndGet();
+        refreshLatencies.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMillis(durationNanos)));
+    }
+
+    @Override
+    public void onRefreshFailed(TokenType tokenType, Failure cause, long durationNanos) {
+        failures.incrementAndGet(cause.ordinal());
+    }
+
+    @Override
+    public void onRefreshWaited(TokenType tokenType, long durationNanos) {
+        waits.incrementAndGet();
+        waitNanos.addAndGet(durationNanos);
+    }
+
+    @Override
+    public void onStaleTokenServed(TokenType tokenType, long staleForMillis) {
+        staleTokens.incrementAndGet();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public long getAccountManagerCalls() {
+        return accountManagerCalls.get();
+    }
+
+    /**
+     * @return the total time spent in AccountManager calls, in nanoseconds.
+     */
+    public long getAccountManagerNanos() {
+        return accountManagerNanos.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    /**
+     * @return the number of successful refreshes in each bucket of {@link #REFRESH_LATENCY_BUCKETS_IN_MILLIS}, plus the slower ones last.
+     */
+    public long[] getRefreshLatencyHistogram() {
+        final long[] histogram = new long[refreshLatencies.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = refreshLatencies.get(i);
+        }
+        return histogram;
+    }
+
+    public long getRefreshFailures(Failure cause) {
+        return failures.get(cause.ordinal());
+    }
+
+    /**
+     * @return the number of callers that waited for a refresh already in flight.
+     */
+    public long getRefreshWaits() {
+        return waits.get();
+    }
+
+    /**
+     * @return the total time callers spent waiting for refreshes already in flight, in nanoseconds.
+     */
+    public long getRefreshWaitNanos() {
+        return waitNanos.get();
+    }
+
+    /**
+     * @return the number of expired tokens served within the stale grace period.
+     */
+    public long getStaleTokensServed() {
+        return staleTokens.get();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder failures = new StringBuilder();
+        for (Failure cause : Failure.values()) {
+            failures.append(failures.length() == 0 ? "" : ", ").append(cause).append('=').append(getRefreshFailures(cause));
+        }
+        return "TokenMetricsRecorder{" +
+                "cacheHits=" + getCacheHits() +
+                ", cacheMisses=" + getCacheMisses() +
+                ", accountManagerCalls=" + getAccountManagerCalls() +
+                ", accountManagerMillis=" + TimeUnit.NANOSECONDS.toMillis(getAccountManagerNanos()) +
+                ", refreshes=" + getRefreshes() +
+                ", refreshLatencyHistogram=" + Arrays.toString(getRefreshLatencyHistogram()) +
+                ", refreshFailures={" + failures + "}" +
+                ", refreshWaits=" + getRefreshWaits() +
+                ", refreshWaitMillis=" + TimeUnit.NANOSECONDS.toMillis(getRefreshWaitNanos()) +
+                ", staleTokensServed=" + getStaleTokensServed() +
+                '}';
+    }
+
+    private static int bucket(long millis) {
+        for (int i = 0; i < REFRESH_LATENCY_BUCKETS_IN_MILLIS.length; i++) {
+            if (millis < REFRESH_LATENCY_BUCKETS_IN_MILLIS[i]) {
+                return i;
+            }
+        }
+        return REFRESH_LATENCY_BUCKETS_IN_MILLIS.length;
+    }
+}
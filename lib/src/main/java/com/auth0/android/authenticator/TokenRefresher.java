@@ -0,0 +1,221 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.accounts.AccountManagerCallback;
+import android.accounts.AccountManagerFuture;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the tokens in the {@link TokenCache} fresh by renewing them in the background before they expire, so that
+ * callers of {@link Authenticator#getToken(ResultCallback)} don't have to wait for a refresh.
+ * A single instance is shared by every Authenticator of the same Account Type in the process. The refreshes of every
+ * Account Type are started on a single scheduler thread, which never waits for them: their results are handled on the
+ * callback handler, so a slow refresh doesn't hold back the others.
+ */
+class TokenRefresher {
+
+    private static final String TAG = TokenRefresher.class.getSimpleName();
+    private static final Map<String, TokenRefresher> instances = new HashMap<>();
+    private static final long RETRY_DELAY_IN_MILLIS = 60 * 1000;
+    private static final ScheduledExecutorService sharedScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Auth0-TokenRefresher"));
+
+    private final AccountManager am;
+    private final String accountType;
+    private final TokenCache tokenCache;
+    private final CredentialStore credentialStore;
+    private final Connectivity connectivity;
+    private final ScheduledExecutorService scheduler;
+    private final Handler callbackHandler;
+    private final ConcurrentMap<String, ScheduledFuture<?>> scheduledRefreshes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> retryDeadlines = new ConcurrentHashMap<>();
+    private volatile RefreshPolicy policy = new RefreshPolicy(RefreshPolicy.DEFAULT_LIFETIME_RATIO);
+    private volatile long staleGracePeriodInMillis;
+
+    TokenRefresher(AccountManager accountManager, String accountType, TokenCache tokenCache, Connectivity connectivity) {
+        this(accountManager, accountType, tokenCache, connectivity, sharedScheduler, Components.callbackHandler());
+    }
+
+    TokenRefresher(AccountManager accountManager, String accountType, TokenCache tokenCache, Connectivity connectivity,
+                   ScheduledExecutorService scheduler, Handler callbackHandler) {
+        this.am = accountManager;
+        this.accountType = accountType;
+        this.tokenCache = tokenCache;
+        this.credentialStore = new CredentialStore(accountManager);
+        this.connectivity = connectivity;
+        this.scheduler = scheduler;
+        this.callbackHandler = callbackHandler;
+    }
+
+    /**
+     * Obtains the refresher shared by all the Authenticators of the given Account Type, creating it the first time.
+     *
+     * @param context     any context. Only the application context is retained.
+     * @param accountType the Account Type the tokens belong to.
+     * @return the refresher for the Account Type.
+     */
+    static synchronized TokenRefresher forAccountType(Context context, String accountType) {
+        TokenRefresher refresher = instances.get(accountType);
+        if (refresher == null) {
+            final Context appContext = context.getApplicationContext();
+            refresher = new TokenRefresher(AccountManager.get(appContext), accountType, TokenCache.forAccountType(appContext, accountType), Components.connectivity(appContext));
+            instances.put(accountType, refresher);
+        }
+        return refresher;
+    }
+
+    void setPolicy(RefreshPolicy policy) {
+        this.policy = policy;
+    }
+
+    void setStaleGracePeriod(long gracePeriodInMillis) {
+        this.staleGracePeriodInMillis = gracePeriodInMillis;
+    }
+
+    /**
+     * Whether a token that expired at the given time can still be served while it's renewed in the background.
+     *
+     * @param expiresAt the time in milliseconds at which the token expired.
+     * @return true if the token expired less than the stale grace period ago.
+     */
+    boolean isWithinGracePeriod(long expiresAt) {
+        final long gracePeriod = staleGracePeriodInMillis;
+        return gracePeriod > 0 && System.currentTimeMillis() <= expiresAt + gracePeriod;
+    }
+
+    /**
+     * Stores a token just obtained from the AccountManager in the cache and schedules its renewal.
+     *
+     * @param account       the Account the token belongs to.
+     * @param authTokenType the type of the token.
+     * @param authToken     the token.
+     * @param cacheVersion  the version of the cache read before the token was obtained.
+     */
+    void onTokenObtained(Account account, String authTokenType, String authToken, long cacheVersion) {
+        final CredentialRecord record = credentialStore.read(account, authTokenType);
+        if (record == null || !authToken.equals(record.accessToken)) {
+            DebugLog.d(TAG, "onTokenObtained > credentials were replaced meanwhile, not caching the token");
+            return;
+        }
+        onTokenObtained(account, authTokenType, record, cacheVersion);
+    }
+
+    /**
+     * Stores a token just read from the Account in the cache and schedules its renewal.
+     *
+     * @param account       the Account the token belongs to.
+     * @param authTokenType the type of the token.
+     * @param record        the credentials holding the token.
+     * @param cacheVersion  the version of the cache read before the credentials were read.
+     */
+    void onTokenObtained(Account account, String authTokenType, CredentialRecord record, long cacheVersion) {
+        final long refreshAt = policy.refreshAt(record.issuedAt, record.expiresAt);
+        final TokenCache.Entry entry = new TokenCache.Entry(account.name, authTokenType, record.accessToken, record.expiresAt, refreshAt, record.version);
+        if (tokenCache.put(TokenCache.key(account.name, authTokenType), entry, cacheVersion)) {
+            retryDeadlines.remove(TokenCache.key(account.name, authTokenType));
+            schedule(entry, Math.max(0, refreshAt - System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Starts renewing the cached token right away if its refresh time already passed but the scheduled refresh didn't run,
+     * e.g. because the device was asleep, or because the token is stale. A refresh that failed isn't brought forward before its retry is due.
+     *
+     * @param entry the cached token.
+     */
+    void refreshIfDue(TokenCache.Entry entry) {
+        final long now = System.currentTimeMillis();
+        if (now < entry.refreshAt) {
+            return;
+        }
+        final String key = TokenCache.key(entry.accountName, entry.authTokenType);
+        final Long retryAt = retryDeadlines.get(key);
+        if (retryAt != null && now < retryAt) {
+            return;
+        }
+        final ScheduledFuture<?> scheduled = scheduledRefreshes.get(key);
+        if (scheduled == null || scheduled.getDelay(TimeUnit.MILLISECONDS) > 0) {
+            schedule(entry, 0);
+        }
+    }
+
+    private void schedule(final TokenCache.Entry entry, long delayInMillis) {
+        final ScheduledFuture<?> refresh = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                refresh(entry);
+            }
+        }, delayInMillis, TimeUnit.MILLISECONDS);
+        final ScheduledFuture<?> previous = scheduledRefreshes.put(TokenCache.key(entry.accountName, entry.authTokenType), refresh);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    @SuppressWarnings("MissingPermission")
+    private void refresh(final TokenCache.Entry entry) {
+        final long cacheVersion = tokenCache.version();
+        final String key = TokenCache.key(entry.accountName, entry.authTokenType);
+        if (tokenCache.peek(key) != entry) {
+            DebugLog.d(TAG, "refresh > token was replaced or invalidated, skipping");
+            return;
+        }
+        if (!connectivity.isOnline()) {
+            DebugLog.d(TAG, "refresh > offline, renewing the token once the device is back online");
+            connectivity.whenOnline(key, new Runnable() {
+                @Override
+                public void run() {
+                    schedule(entry, 0);
+                }
+            });
+            return;
+        }
+
+        DebugLog.d(TAG, "refresh > renewing token ahead of its expiration");
+        final Account account = new Account(entry.accountName, accountType);
+        //The Authenticator Service renews the stored token even though it's still valid, because it's the one being replaced
+        final Bundle options = new Bundle();
+        options.putString(Auth0Authenticator.KEY_INVALID_TOKEN, entry.token);
+        final long start = System.nanoTime();
+        am.getAuthToken(account, entry.authTokenType, options, false, new AccountManagerCallback<Bundle>() {
+            @Override
+            public void run(AccountManagerFuture<Bundle> future) {
+                Components.metrics().onAccountManagerCall("getAuthToken", System.nanoTime() - start);
+                try {
+                    final String authToken = future.getResult().getString(AccountManager.KEY_AUTHTOKEN);
+                    if (entry.token.equals(authToken)) {
+                        //Auth0 couldn't be reached, and the Authenticator Service kept the token while it's valid
+                        DebugLog.d(TAG, "refresh > the token couldn't be renewed yet, retrying later");
+                        scheduleRetry(entry);
+                    } else if (authToken != null) {
+                        onTokenObtained(account, entry.authTokenType, authToken, cacheVersion);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "refresh > failed to renew the token, retrying later", e);
+                    scheduleRetry(entry);
+                }
+            }
+        }, callbackHandler);
+    }
+
+    /**
+     * Schedules the refresh again after a failure. Until then, {@link #refreshIfDue(TokenCache.Entry)} leaves it alone,
+     * so the traffic served from the cache doesn't turn the retry delay into a refresh on every hit.
+     */
+    private void scheduleRetry(TokenCache.Entry entry) {
+        retryDeadlines.put(TokenCache.key(entry.accountName, entry.authTokenType), System.currentTimeMillis() + RETRY_DELAY_IN_MILLIS);
+        schedule(entry, RETRY_DELAY_IN_MILLIS);
+    }
+}
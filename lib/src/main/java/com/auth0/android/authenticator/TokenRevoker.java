@@ -0,0 +1,348 @@
+package com.auth0.android.authenticator;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.Nullable;
+import android.util.Base64;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.squareup.okhttp.HttpUrl;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revokes refresh tokens with the /oauth/revoke endpoint of Auth0, at most {@link #MAX_CONCURRENT_REVOCATIONS} at a time.
+ * Every token is queued before it's sent, and only leaves the queue once Auth0 answered. When Auth0 can't be reached or answers
+ * with a server error the revocation is sent again a few times with the {@link RetryPolicy} backoff, and after that, or while the
+ * device is offline, it stays queued and is sent once the device is back online. If the app set
+ * a key with {@link Authenticator#setCredentialKey(byte[])} the tokens are encrypted and queued in the shared preferences,
+ * so they're also sent the next time the process starts. Without a key they're only queued in memory, since they'd be
+ * written in plain text otherwise. A single instance is shared in the process.
+ */
+class TokenRevoker {
+
+    private static final String TAG = TokenRevoker.class.getSimpleName();
+    private static final String PREFERENCES_NAME = "com.auth0.android.authenticator.revocations";
+    private static final String REVOCATION_PATH = "oauth/revoke";
+    private static final String PENDING_KEY = "pending_revocations";
+    private static final String SEALED_TOKEN_TYPE = "revocation";
+    private static final String PLAIN = "P";
+    private static final String SEALED = "S";
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final int MAX_CONCURRENT_REVOCATIONS = 4;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final ScheduledExecutorService sharedScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Auth0-RevokeRetry"));
+
+    /**
+     * Gets the outcome of each revocation.
+     */
+    interface Listener {
+        /**
+         * Auth0 revoked the token, or answered that there was nothing to revoke.
+         */
+        void onRevoked();
+
+        /**
+         * Auth0 refused to revoke the token, e.g. because the client can't revoke tokens. It's not sent again.
+         */
+        void onRejected();
+
+        /**
+         * The token couldn't be sent, because the device is offline or Auth0 still couldn't be reached after the retries.
+         * It stays queued.
+         */
+        void onDeferred();
+    }
+
+    private final SharedPreferences preferences;
+    private final Connectivity connectivity;
+    private final OkHttpClient client;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor executor;
+    private final Gson gson = new Gson();
+    private final Set<String> inFlight = new HashSet<>();
+    private final Map<String, String> memoryQueue = new ConcurrentHashMap<>();
+
+    TokenRevoker(SharedPreferences preferences, Connectivity connectivity, OkHttpClient client) {
+        this(preferences, connectivity, client, new RetryPolicy(), sharedScheduler);
+    }
+
+    TokenRevoker(SharedPreferences preferences, Connectivity connectivity, OkHttpClient client, RetryPolicy retryPolicy, ScheduledExecutorService scheduler) {
+        this.preferences = preferences;
+        this.connectivity = connectivity;
+        this.client = client;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+        this.executor = new ThreadPoolExecutor(MAX_CONCURRENT_REVOCATIONS, MAX_CONCURRENT_REVOCATIONS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("Auth0-Revoke"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Creates the revoker and sends the revocations left queued by a previous process.
+     *
+     * @param context any context. Only the application context is retained.
+     */
+    static TokenRevoker create(Context context) {
+        final Context appContext = context.getApplicationContext();
+        final TokenRevoker revoker = new TokenRevoker(appContext.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE), Components.connectivity(appContext), Components.httpClient());
+        revoker.revokePending();
+        return revoker;
+    }
+
+    /**
+     * Queues the given refresh tokens and sends their revocations, or holds them until the device is back online.
+     *
+     * @param refreshTokens the tokens to revoke.
+     * @param baseUrl       the URL of the Auth0 domain that issued the tokens.
+     * @param clientId      the id of the client the tokens were issued to.
+     * @param listener      the listener that gets the outcome of each token, or null.
+     */
+    void revoke(Collection<String> refreshTokens, String baseUrl, String clientId, @Nullable Listener listener) {
+        final Map<String, String> queued = new HashMap<>();
+        final SharedPreferences.Editor editor = preferences.edit();
+        for (String refreshToken : refreshTokens) {
+            final String id = UUID.randomUUID().toString();
+            final String entry = encode(baseUrl, clientId, refreshToken);
+            if (entry == null) {
+                notify(listener, false);
+                continue;
+            }
+            if (entry.startsWith(SEALED + "\n")) {
+                editor.putString(id, entry);
+            } else {
+                memoryQueue.put(id, entry);
+            }
+            queued.put(id, entry);
+        }
+        editor.apply();
+        DebugLog.d(TAG, "revoke > " + queued.size() + " tokens queued");
+
+        if (!connectivity.isOnline()) {
+            for (int i = 0; listener != null && i < queued.size(); i++) {
+                listener.onDeferred();
+            }
+            deferPending();
+            return;
+        }
+        for (Map.Entry<String, String> entry : queued.entrySet()) {
+            submit(entry.getKey(), entry.getValue(), listener);
+        }
+    }
+
+    /**
+     * Same as {@link #revokePending(Listener)} without a listener.
+     */
+    void revokePending() {
+        revokePending(null);
+    }
+
+    /**
+     * Sends the queued revocations that aren't being sent already, or waits for the device to be back online.
+     *
+     * @param listener the listener that gets the outcome of each token sent now, or null.
+     */
+    void revokePending(@Nullable Listener listener) {
+        if (!connectivity.isOnline()) {
+            deferPending();
+            return;
+        }
+        final Map<String, Object> entries = new HashMap<String, Object>(preferences.getAll());
+        entries.putAll(memoryQueue);
+        DebugLog.d(TAG, "revokePending > " + entries.size() + " tokens queued");
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (entry.getValue() instanceof String) {
+                submit(entry.getKey(), (String) entry.getValue(), listener);
+            }
+        }
+    }
+
+    private void deferPending() {
+        connectivity.whenOnline(PENDING_KEY, new Runnable() {
+            @Override
+            public void run() {
+                revokePending();
+            }
+        });
+    }
+
+    private void submit(final String id, final String entry, @Nullable final Listener listener) {
+        synchronized (inFlight) {
+            if (!inFlight.add(id)) {
+                return;
+            }
+        }
+        executor.execute(attempt(id, entry, listener, 1));
+    }
+
+    /**
+     * Makes an attempt to send the revocation. The token stays in flight while a retry is scheduled, so it isn't sent twice,
+     * and leaves it before the listener gets the outcome.
+     */
+    private Runnable attempt(final String id, final String entry, @Nullable final Listener listener, final int attempt) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    send(id, entry, listener, attempt);
+                } catch (RuntimeException e) {
+                    release(id);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private void release(String id) {
+        synchronized (inFlight) {
+            inFlight.remove(id);
+        }
+    }
+
+    /**
+     * Sends a single revocation. The token leaves the queue once Auth0 answers, unless it asked to slow down or failed.
+     */
+    private void send(String id, String entry, @Nullable Listener listener, int attempt) {
+        final String[] parts = entry.split("\n", 4);
+        final String refreshToken = parts.length == 4 ? decode(parts[0], parts[3]) : null;
+        final HttpUrl baseUrl = parts.length == 4 ? HttpUrl.parse(parts[1]) : null;
+        if (refreshToken == null || baseUrl == null) {
+            Log.w(TAG, "Dropping a queued revocation that can't be read, e.g. because the credential key changed.");
+            dequeue(id);
+            release(id);
+            notify(listener, false);
+            return;
+        }
+
+        final Map<String, String> parameters = new HashMap<>();
+        parameters.put("client_id", parts[2]);
+        parameters.put("token", refreshToken);
+        final Request request = new Request.Builder()
+                .url(baseUrl.resolve(REVOCATION_PATH))
+                .post(RequestBody.create(JSON, gson.toJson(parameters)))
+                .build();
+        final int code;
+        try {
+            final Response response = client.newCall(request).execute();
+            code = response.code();
+            response.body().close();
+        } catch (IOException e) {
+            DebugLog.d(TAG, "send > Auth0 couldn't be reached on attempt " + attempt);
+            retryOrDefer(id, entry, listener, attempt);
+            return;
+        }
+
+        if (code == HTTP_TOO_MANY_REQUESTS || code >= HTTP_SERVER_ERROR) {
+            DebugLog.d(TAG, "send > Auth0 answered " + code + " on attempt " + attempt);
+            retryOrDefer(id, entry, listener, attempt);
+            return;
+        }
+        dequeue(id);
+        release(id);
+        if (code >= 400) {
+            Log.w(TAG, "Auth0 refused to revoke the refresh token with status " + code + ". Check that the client can revoke its tokens.");
+        }
+        notify(listener, code < 400);
+    }
+
+    /**
+     * Schedules another attempt after the backoff while the device is online and the policy allows it. Otherwise the token
+     * stays queued until the device is back online.
+     */
+    private void retryOrDefer(String id, String entry, @Nullable Listener listener, int attempt) {
+        final boolean online = connectivity.isOnline();
+        if (online && retryPolicy.shouldRetry(attempt)) {
+            final Runnable next = attempt(id, entry, listener, attempt + 1);
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    executor.execute(next);
+                }
+            }, retryPolicy.delayAfter(attempt), TimeUnit.MILLISECONDS);
+            return;
+        }
+        release(id);
+        if (!online) {
+            deferPending();
+        } else if (memoryQueue.containsKey(id)) {
+            Log.w(TAG, "Auth0 couldn't revoke the refresh token after " + attempt + " attempts. It's kept in memory until the device reconnects, and lost if the app is killed before.");
+        } else {
+            Log.w(TAG, "Auth0 couldn't revoke the refresh token after " + attempt + " attempts. It's kept queued until the device reconnects or the app starts again.");
+        }
+        if (listener != null) {
+            listener.onDeferred();
+        }
+    }
+
+    private void dequeue(String id) {
+        if (memoryQueue.remove(id) == null) {
+            preferences.edit().remove(id).apply();
+        }
+    }
+
+    private static void notify(@Nullable Listener listener, boolean revoked) {
+        if (listener == null) {
+            return;
+        }
+        if (revoked) {
+            listener.onRevoked();
+        } else {
+            listener.onRejected();
+        }
+    }
+
+    /**
+     * Encodes the queue entry of a token as the kind of token, the base URL, the client id and the token, one per line.
+     * The token is sealed when there's a credential key. Only the sealed entries may be written to the shared preferences.
+     */
+    private static String encode(String baseUrl, String clientId, String refreshToken) {
+        final CredentialCipher cipher = Components.credentialCipher();
+        if (cipher == null) {
+            return PLAIN + "\n" + baseUrl + "\n" + clientId + "\n" + refreshToken;
+        }
+        try {
+            final String sealed = Base64.encodeToString(cipher.seal(refreshToken, SEALED_TOKEN_TYPE), Base64.NO_WRAP);
+            return SEALED + "\n" + baseUrl + "\n" + clientId + "\n" + sealed;
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, "Couldn't encrypt the refresh token to revoke.", e);
+            return null;
+        }
+    }
+
+    private static String decode(String kind, String token) {
+        if (PLAIN.equals(kind)) {
+            return token;
+        }
+        final CredentialCipher cipher = Components.credentialCipher();
+        if (!SEALED.equals(kind) || cipher == null) {
+            return null;
+        }
+        try {
+            final byte[] sealed = Base64.decode(token, Base64.NO_WRAP);
+            return cipher.open(sealed, 0, sealed.length, SEALED_TOKEN_TYPE);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
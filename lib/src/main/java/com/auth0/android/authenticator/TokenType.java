@@ -0,0 +1,96 @@
+package com.auth0.android.authenticator;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Identifies a kind of Access Token by the API it's meant for and the scopes it grants.
+ * Each type of token is stored, cached and renewed independently.
+ */
+public final class TokenType {
+
+    /**
+     * The token type used when no audience or scope is given.
+     */
+    public static final TokenType DEFAULT = new TokenType(null, null);
+
+    private static final String DEFAULT_KEY = "default";
+    private static final char SEPARATOR = '|';
+
+    private final String audience;
+    private final String scope;
+    private final String key;
+
+    /**
+     * Creates a new token type.
+     *
+     * @param audience the identifier of the API the token is meant for, or null to use the tenant's default audience.
+     * @param scope    the space-separated scopes the token should grant, or null to use the ones given on login.
+     */
+    public TokenType(@Nullable String audience, @Nullable String scope) {
+        this.audience = TextUtils.isEmpty(audience) ? null : audience;
+        this.scope = normalizeScope(scope);
+        this.key = this.audience == null && this.scope == null ? DEFAULT_KEY : nullToEmpty(this.audience) + SEPARATOR + nullToEmpty(this.scope);
+    }
+
+    @Nullable
+    public String getAudience() {
+        return audience;
+    }
+
+    @Nullable
+    public String getScope() {
+        return scope;
+    }
+
+    /**
+     * The value used as the 'authTokenType' in the AccountManager.
+     */
+    String key() {
+        return key;
+    }
+
+    /**
+     * Rebuilds the token type from its AccountManager 'authTokenType'.
+     */
+    static TokenType fromKey(@NonNull String key) {
+        final int separator = key.indexOf(SEPARATOR);
+        if (separator == -1) {
+            return DEFAULT;
+        }
+        return new TokenType(key.substring(0, separator), key.substring(separator + 1));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TokenType && key.equals(((TokenType) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    /**
+     * Sorts the scopes and removes duplicates, so that equivalent scopes end up in the same token type.
+     */
+    private static String normalizeScope(String scope) {
+        if (scope == null || scope.trim().isEmpty()) {
+            return null;
+        }
+        return TextUtils.join(" ", new TreeSet<>(Arrays.asList(scope.trim().split("\\s+"))));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,72 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AccountIndexTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.test";
+    private static final int ACCOUNTS = 500;
+
+    private AccountIndex index;
+    private Account[] accounts;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = RuntimeEnvironment.application;
+        index = new AccountIndex(ACCOUNT_TYPE, context.getSharedPreferences("test", Context.MODE_PRIVATE));
+        accounts = new Account[ACCOUNTS + 1];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new Account("user-" + i, ACCOUNT_TYPE);
+        }
+        accounts[ACCOUNTS] = new Account("user-0", "com.other.type");
+        index.onAccountsUpdated(accounts);
+    }
+
+    @Test
+    public void shouldIndexOnlyAccountsOfItsType() throws Exception {
+        assertEquals(ACCOUNTS, index.size());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertSame(accounts[i], index.get("user-" + i));
+        }
+        assertNull(index.get("user-" + ACCOUNTS));
+    }
+
+    @Test
+    public void shouldNotPickActiveAccountAmongSeveral() throws Exception {
+        assertNull(index.getActiveAccount());
+        index.setActiveAccount("user-42");
+        assertSame(accounts[42], index.getActiveAccount());
+    }
+
+    @Test
+    public void shouldUseSingleAccountAsActive() throws Exception {
+        Account account = new Account("john", ACCOUNT_TYPE);
+        index.onAccountsUpdated(new Account[]{account});
+        assertSame(account, index.getActiveAccount());
+    }
+
+    @Test
+    public void shouldForgetActiveAccountOnceRemoved() throws Exception {
+        index.setActiveAccount("user-42");
+        index.remove(accounts[42]);
+        assertNull(index.get("user-42"));
+        assertNull(index.getActiveAccount());
+
+        index.add(accounts[42]);
+        assertSame(accounts[42], index.getActiveAccount());
+    }
+}
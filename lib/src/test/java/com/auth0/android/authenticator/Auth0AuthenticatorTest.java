@@ -0,0 +1,362 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountAuthenticatorResponse;
+import android.accounts.AccountManager;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Bundle;
+
+import com.auth0.android.Auth0;
+import com.auth0.android.authentication.AuthenticationAPIClient;
+import com.auth0.android.authentication.AuthenticationException;
+import com.auth0.android.request.ParameterizableRequest;
+import com.auth0.android.result.Credentials;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class Auth0AuthenticatorTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.test";
+    private static final String TOKEN_TYPE = "default";
+    private static final String RENEWED_CREDENTIALS = "{\"access_token\":\"renewed-token\",\"token_type\":\"Bearer\",\"expires_in\":86400}";
+    private static final String REVOKED_REFRESH_TOKEN = "{\"error\":\"invalid_grant\",\"error_description\":\"Unknown or invalid refresh token.\"}";
+
+    private MockWebServer server;
+    private AuthenticationAPIClient apiClient;
+    private Account account;
+    private Auth0Authenticator authenticator;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        Auth0 auth0 = new Auth0("CLIENT_ID", server.url("/").toString());
+        auth0.setOIDCConformant(true);
+
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        account = new Account("john", ACCOUNT_TYPE);
+        accountManager.addAccountExplicitly(account, "refresh-token", new Bundle());
+        apiClient = new AuthenticationAPIClient(auth0);
+        //The connectivity shared in the process may belong to the application of a previous test
+        authenticator = new Auth0Authenticator(RuntimeEnvironment.application, apiClient, new RetryPolicy(), new CircuitBreaker(), new Connectivity(RuntimeEnvironment.application));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        Components.setMetrics(TokenMetrics.NONE);
+    }
+
+    @Test
+    public void shouldRefreshExpiredTokenOnceForConcurrentCallers() throws Exception {
+        final int callers = 16;
+        //Enough responses for every caller, so that a missing deduplication shows up as extra requests instead of a hang
+        for (int i = 0; i < callers; i++) {
+            server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS).setBodyDelay(200, TimeUnit.MILLISECONDS));
+        }
+
+        List<AccountAuthenticatorResponse> responses = getAuthTokenConcurrently(callers);
+
+        for (AccountAuthenticatorResponse response : responses) {
+            assertEquals("renewed-token", awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldNotRefreshTokenThatWasAlreadyRenewed() throws Exception {
+        server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS));
+        server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS));
+
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        assertNull(authenticator.getAuthToken(response, account, TOKEN_TYPE, null));
+        awaitResult(response);
+        Bundle result = authenticator.getAuthToken(mock(AccountAuthenticatorResponse.class), account, TOKEN_TYPE, null);
+
+        assertEquals("renewed-token", result.getString(AccountManager.KEY_AUTHTOKEN));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldRefreshEachTokenTypeWithItsOwnRefreshToken() throws Exception {
+        TokenType photos = new TokenType("https://photos.example.com", "read:photos");
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        CredentialStore store = new CredentialStore(accountManager);
+        store.write(account, photos.key(), new CredentialRecord(null, "photos-refresh-token", 0, 0, 1));
+        server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS));
+
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(response, account, photos.key(), null);
+
+        assertEquals("renewed-token", awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+        String body = server.takeRequest().getBody().readUtf8();
+        assertTrue(body.contains("photos-refresh-token"));
+        assertTrue(body.contains("read:photos"));
+        CredentialRecord record = store.read(account, photos.key());
+        assertEquals("renewed-token", record.accessToken);
+        assertEquals("photos-refresh-token", record.refreshToken());
+        assertNull(store.read(account, TOKEN_TYPE).accessToken);
+    }
+
+    @Test
+    public void shouldRenewValidTokenTheCallerInvalidated() throws Exception {
+        CredentialStore store = new CredentialStore(AccountManager.get(RuntimeEnvironment.application));
+        store.write(account, TOKEN_TYPE, CredentialRecord.create("valid-token", "refresh-token", 3600, null));
+        server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS));
+
+        Bundle result = authenticator.getAuthToken(mock(AccountAuthenticatorResponse.class), account, TOKEN_TYPE, null);
+        assertEquals("valid-token", result.getString(AccountManager.KEY_AUTHTOKEN));
+
+        Bundle options = new Bundle();
+        options.putString(Auth0Authenticator.KEY_INVALID_TOKEN, "valid-token");
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        assertNull(authenticator.getAuthToken(response, account, TOKEN_TYPE, options));
+
+        assertEquals("renewed-token", awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+        CredentialRecord record = store.read(account, TOKEN_TYPE);
+        assertEquals("renewed-token", record.accessToken);
+        assertEquals("refresh-token", record.refreshToken());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldReleaseBinderThreadsWhileRefreshing() throws Exception {
+        final int callers = 64;
+        server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS).setBodyDelay(2, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        List<AccountAuthenticatorResponse> responses = getAuthTokenConcurrently(callers);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //Every call returned before the server answered
+        assertTrue("getAuthToken blocked for " + elapsedMillis + " ms", elapsedMillis < 1000);
+        for (AccountAuthenticatorResponse response : responses) {
+            assertEquals("renewed-token", awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+        }
+    }
+
+    @Test
+    public void shouldReportRefreshAndWaitingCallersToMetrics() throws Exception {
+        TokenMetricsRecorder metrics = new TokenMetricsRecorder();
+        Components.setMetrics(metrics);
+        final int callers = 8;
+        server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS).setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        List<AccountAuthenticatorResponse> responses = getAuthTokenConcurrently(callers);
+        for (AccountAuthenticatorResponse response : responses) {
+            awaitResult(response);
+        }
+
+        assertEquals(1, metrics.getRefreshes());
+        assertEquals(callers - 1, metrics.getRefreshWaits());
+        long refreshes = 0;
+        for (long count : metrics.getRefreshLatencyHistogram()) {
+            refreshes += count;
+        }
+        assertEquals(1, refreshes);
+    }
+
+    @Test
+    public void shouldReportRejectedRefreshToMetrics() throws Exception {
+        TokenMetricsRecorder metrics = new TokenMetricsRecorder();
+        Components.setMetrics(metrics);
+        server.enqueue(new MockResponse().setResponseCode(403).setBody(REVOKED_REFRESH_TOKEN));
+
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(response, account, TOKEN_TYPE, null);
+
+        assertNull(awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+        assertEquals(0, metrics.getRefreshes());
+        assertEquals(1, metrics.getRefreshFailures(TokenMetrics.Failure.REJECTED));
+        assertEquals(0, metrics.getRefreshFailures(TokenMetrics.Failure.NETWORK));
+    }
+
+    @Test
+    public void shouldRetryWhenAuth0IsUnavailable() throws Exception {
+        Auth0Authenticator authenticator = createAuthenticator(3, 5);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody(RENEWED_CREDENTIALS));
+
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(response, account, TOKEN_TYPE, null);
+
+        assertEquals("renewed-token", awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldKeepCredentialsWhenAuth0IsUnavailable() throws Exception {
+        Auth0Authenticator authenticator = createAuthenticator(2, 5);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(response, account, TOKEN_TYPE, null);
+
+        verify(response, timeout(10000)).onError(eq(AccountManager.ERROR_CODE_NETWORK_ERROR), anyString());
+        assertEquals(2, server.getRequestCount());
+        CredentialStore store = new CredentialStore(AccountManager.get(RuntimeEnvironment.application));
+        assertEquals("refresh-token", store.read(account, TOKEN_TYPE).refreshToken());
+    }
+
+    @Test
+    public void shouldServeValidTokenWhileAuth0IsUnavailable() throws Exception {
+        Auth0Authenticator authenticator = createAuthenticator(1, 5);
+        CredentialStore store = new CredentialStore(AccountManager.get(RuntimeEnvironment.application));
+        store.write(account, TOKEN_TYPE, CredentialRecord.create("valid-token", "refresh-token", 3600, null));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        Bundle options = new Bundle();
+        options.putString(Auth0Authenticator.KEY_INVALID_TOKEN, "valid-token");
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(response, account, TOKEN_TYPE, options);
+
+        assertEquals("valid-token", awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+    }
+
+    @Test
+    public void shouldNotCallAuth0WhileTheCircuitIsOpen() throws Exception {
+        Auth0Authenticator authenticator = createAuthenticator(2, 2);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        AccountAuthenticatorResponse first = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(first, account, TOKEN_TYPE, null);
+        verify(first, timeout(10000)).onError(eq(AccountManager.ERROR_CODE_NETWORK_ERROR), anyString());
+
+        AccountAuthenticatorResponse second = mock(AccountAuthenticatorResponse.class);
+        assertNull(authenticator.getAuthToken(second, account, TOKEN_TYPE, null));
+        verify(second).onError(eq(AccountManager.ERROR_CODE_NETWORK_ERROR), anyString());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldClearCredentialsWhenTheRefreshTokenIsRevoked() throws Exception {
+        Auth0Authenticator authenticator = createAuthenticator(3, 5);
+        server.enqueue(new MockResponse().setResponseCode(403).setBody(REVOKED_REFRESH_TOKEN));
+
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(response, account, TOKEN_TYPE, null);
+
+        assertNull(awaitResult(response).getString(AccountManager.KEY_AUTHTOKEN));
+        assertEquals(1, server.getRequestCount());
+        CredentialRecord record = new CredentialStore(AccountManager.get(RuntimeEnvironment.application)).read(account, TOKEN_TYPE);
+        assertNull(record.refreshToken());
+        assertNull(record.accessToken);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReleaseTheTrialOfTheCircuitWhenTheRefreshFailsUnexpectedly() throws Exception {
+        ParameterizableRequest<Credentials, AuthenticationException> request = mock(ParameterizableRequest.class);
+        when(request.execute())
+                .thenThrow(new IllegalStateException("The response couldn't be parsed"))
+                .thenReturn(new Credentials(null, "renewed-token", "Bearer", null, 86400L));
+        AuthenticationAPIClient apiClient = mock(AuthenticationAPIClient.class);
+        when(apiClient.renewAuth(anyString())).thenReturn(request);
+        //The circuit is open but its break is over, so the next refresh is the trial
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 0, 0);
+        circuitBreaker.onFailure();
+        Auth0Authenticator authenticator = new Auth0Authenticator(RuntimeEnvironment.application, apiClient, new RetryPolicy(1, 1, 1, new Random()), circuitBreaker, new Connectivity(RuntimeEnvironment.application));
+
+        AccountAuthenticatorResponse first = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(first, account, TOKEN_TYPE, null);
+        verify(first, timeout(10000)).onError(anyInt(), anyString());
+
+        AccountAuthenticatorResponse second = mock(AccountAuthenticatorResponse.class);
+        authenticator.getAuthToken(second, account, TOKEN_TYPE, null);
+        assertEquals("renewed-token", awaitResult(second).getString(AccountManager.KEY_AUTHTOKEN));
+    }
+
+    @Test
+    public void shouldNotCallAuth0WhileOffline() throws Exception {
+        ConnectivityManager connectivityManager = (ConnectivityManager) RuntimeEnvironment.application.getSystemService(Context.CONNECTIVITY_SERVICE);
+        Shadows.shadowOf(connectivityManager).setActiveNetworkInfo(null);
+        TokenMetricsRecorder metrics = new TokenMetricsRecorder();
+        Components.setMetrics(metrics);
+
+        AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+        assertNull(authenticator.getAuthToken(response, account, TOKEN_TYPE, null));
+
+        verify(response).onError(eq(AccountManager.ERROR_CODE_NETWORK_ERROR), anyString());
+        assertEquals(0, server.getRequestCount());
+        assertEquals(1, metrics.getRefreshFailures(TokenMetrics.Failure.OFFLINE));
+    }
+
+    /**
+     * Creates an authenticator that retries right away, and stops calling Auth0 for a minute after the given failures.
+     */
+    private Auth0Authenticator createAuthenticator(int maxAttempts, int failureThreshold) {
+        RetryPolicy retryPolicy = new RetryPolicy(maxAttempts, 1, 1, new Random());
+        CircuitBreaker circuitBreaker = new CircuitBreaker(failureThreshold, 60 * 1000, 60 * 1000);
+        return new Auth0Authenticator(RuntimeEnvironment.application, apiClient, retryPolicy, circuitBreaker, new Connectivity(RuntimeEnvironment.application));
+    }
+
+    /**
+     * Calls getAuthToken from many threads at once, as binder threads would, and waits for all of them to return.
+     */
+    private List<AccountAuthenticatorResponse> getAuthTokenConcurrently(int callers) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService binderThreads = Executors.newFixedThreadPool(callers);
+        final List<AccountAuthenticatorResponse> responses = new ArrayList<>();
+        final List<Future<Bundle>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            final AccountAuthenticatorResponse response = mock(AccountAuthenticatorResponse.class);
+            responses.add(response);
+            results.add(binderThreads.submit(new Callable<Bundle>() {
+                @Override
+                public Bundle call() throws Exception {
+                    start.await();
+                    return authenticator.getAuthToken(response, account, TOKEN_TYPE, null);
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<Bundle> result : results) {
+            assertNull(result.get(1, TimeUnit.SECONDS));
+        }
+        binderThreads.shutdown();
+        return responses;
+    }
+
+    private static Bundle awaitResult(AccountAuthenticatorResponse response) {
+        ArgumentCaptor<Bundle> captor = ArgumentCaptor.forClass(Bundle.class);
+        verify(response, timeout(10000)).onResult(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,86 @@
+package com.auth0.android.authenticator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private long now;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() throws Exception {
+        now = 1000000;
+        breaker = new CircuitBreaker(3, 1000, 3000) {
+            @Override
+            long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void shouldOpenAfterConsecutiveFailures() throws Exception {
+        breaker.onFailure();
+        breaker.onFailure();
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void shouldCountOnlyConsecutiveFailures() throws Exception {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void shouldLetASingleTrialThroughOnceTheBreakIsOver() throws Exception {
+        open();
+        now += 1000;
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void shouldDoubleTheBreakWhenTheTrialFails() throws Exception {
+        open();
+        now += 1000;
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        now += 1999;
+        assertFalse(breaker.tryAcquire());
+        now += 1;
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        now += 2999;
+        assertFalse(breaker.tryAcquire());
+        now += 1;
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.AccountManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Resources;
+import android.os.IBinder;
+
+import com.auth0.android.authentication.AuthenticationAPIClient;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class ComponentsTest {
+
+    private static final String PACKAGE_NAME = "com.auth0.android.authenticator.test";
+
+    private Context context;
+
+    @Before
+    public void setUp() throws Exception {
+        //The library has no Auth0 resources of its own, so the context provides the ones an app would declare
+        Resources resources = mock(Resources.class);
+        when(resources.getIdentifier("com_auth0_client_id", "string", PACKAGE_NAME)).thenReturn(1);
+        when(resources.getIdentifier("com_auth0_domain", "string", PACKAGE_NAME)).thenReturn(2);
+        when(resources.getString(1)).thenReturn("CLIENT_ID");
+        when(resources.getString(2)).thenReturn("samples.auth0.com");
+        context = mock(Context.class);
+        when(context.getApplicationContext()).thenReturn(context);
+        when(context.getPackageName()).thenReturn(PACKAGE_NAME);
+        when(context.getResources()).thenReturn(resources);
+    }
+
+    @Test
+    public void shouldShareApiClientInProcess() throws Exception {
+        AuthenticationAPIClient apiClient = Components.apiClient(context);
+
+        assertNotNull(apiClient);
+        assertSame(apiClient, Components.apiClient(context));
+        assertSame(apiClient, Components.apiClient(RuntimeEnvironment.application));
+    }
+
+    @Test
+    public void shouldBindSameAuthenticatorEveryTime() throws Exception {
+        Components.apiClient(context);
+        Intent intent = new Intent(AccountManager.ACTION_AUTHENTICATOR_INTENT);
+
+        IBinder first = Robolectric.setupService(Auth0AuthenticatorService.class).onBind(intent);
+        IBinder second = Robolectric.setupService(Auth0AuthenticatorService.class).onBind(intent);
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertSame(Components.authenticator(RuntimeEnvironment.application).getIBinder(), first);
+    }
+}
@@ -0,0 +1,117 @@
+package com.auth0.android.authenticator;
+
+import android.util.Base64;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.security.GeneralSecurityException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CredentialRecordTest {
+
+    private static final String TOKEN_TYPE = "default";
+
+    private CountingCipher cipher;
+    private CredentialRecord record;
+
+    @Before
+    public void setUp() throws Exception {
+        cipher = new CountingCipher();
+        record = new CredentialRecord("access-token", "refresh-token", 1000, 2000, 3);
+    }
+
+    @Test
+    public void shouldDecodeWhatWasEncoded() throws Exception {
+        CredentialRecord plain = CredentialRecord.decode(record.encode(TOKEN_TYPE, null), TOKEN_TYPE, null);
+        CredentialRecord sealed = CredentialRecord.decode(record.encode(TOKEN_TYPE, cipher), TOKEN_TYPE, cipher);
+
+        for (CredentialRecord decoded : new CredentialRecord[]{plain, sealed}) {
+            assertEquals("access-token", decoded.accessToken);
+            assertEquals("refresh-token", decoded.refreshToken());
+            assertEquals(1000, decoded.issuedAt);
+            assertEquals(2000, decoded.expiresAt);
+            assertEquals(3, decoded.version);
+        }
+    }
+
+    @Test
+    @Config(sdk = 16)
+    public void shouldDecodeWhatWasEncodedBeforeKitKat() throws Exception {
+        String value = record.encode(TOKEN_TYPE, cipher);
+
+        assertEquals("refresh-token", CredentialRecord.decode(value, TOKEN_TYPE, cipher).refreshToken());
+        assertNull(CredentialRecord.decode(value, TOKEN_TYPE + "2", cipher));
+    }
+
+    @Test
+    public void shouldNotStoreTokensInPlainTextWithKey() throws Exception {
+        String value = new String(Base64.decode(record.encode(TOKEN_TYPE, cipher), Base64.NO_WRAP), "ISO-8859-1");
+
+        assertFalse(value.contains("access-token"));
+        assertFalse(value.contains("refresh-token"));
+    }
+
+    @Test
+    public void shouldOnlyDecryptRefreshTokenWhenAsked() throws Exception {
+        CredentialRecord decoded = CredentialRecord.decode(record.encode(TOKEN_TYPE, cipher), TOKEN_TYPE, cipher);
+        assertEquals(1, cipher.opened);
+
+        decoded.refreshToken();
+        assertEquals(2, cipher.opened);
+    }
+
+    @Test
+    public void shouldKeepEncryptedRefreshTokenWhenRenewed() throws Exception {
+        CredentialRecord decoded = CredentialRecord.decode(record.encode(TOKEN_TYPE, cipher), TOKEN_TYPE, cipher);
+
+        String renewed = decoded.renew("new-access-token", null, 3600).encode(TOKEN_TYPE, cipher);
+
+        assertEquals(1, cipher.opened);
+        assertEquals("refresh-token", CredentialRecord.decode(renewed, TOKEN_TYPE, cipher).refreshToken());
+    }
+
+    @Test
+    public void shouldNotDecodeWithAnotherKeyOrTokenType() throws Exception {
+        String value = record.encode(TOKEN_TYPE, cipher);
+
+        assertNull(CredentialRecord.decode(value, TOKEN_TYPE, new CredentialCipher(new byte[16])));
+        assertNull(CredentialRecord.decode(value, TOKEN_TYPE, null));
+        assertNull(CredentialRecord.decode(value, "https://photos.example.com|read:photos", cipher));
+    }
+
+    @Test
+    public void shouldHaveNoRefreshTokenOnceRevoked() throws Exception {
+        CredentialRecord revoked = CredentialRecord.decode(record.revoke().encode(TOKEN_TYPE, cipher), TOKEN_TYPE, cipher);
+
+        assertNull(revoked.accessToken);
+        assertFalse(revoked.hasRefreshToken());
+        assertTrue(revoked.version > record.version);
+    }
+
+    /**
+     * Counts the tokens decrypted.
+     */
+    private static class CountingCipher extends CredentialCipher {
+        private int opened;
+
+        CountingCipher() {
+            super(new byte[32]);
+        }
+
+        @Override
+        String open(byte[] sealed, int offset, int length, String authTokenType) throws GeneralSecurityException {
+            opened++;
+            return super.open(sealed, offset, length, authTokenType);
+        }
+    }
+}
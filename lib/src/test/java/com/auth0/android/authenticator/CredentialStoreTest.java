@@ -0,0 +1,153 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.os.Bundle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CredentialStoreTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.test";
+    private static final String TOKEN_TYPE = "default";
+
+    private Account account;
+
+    @Before
+    public void setUp() throws Exception {
+        account = new Account("john", ACCOUNT_TYPE);
+    }
+
+    @Test
+    public void shouldReadWhatWasWritten() throws Exception {
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        accountManager.addAccountExplicitly(account, null, null);
+        CredentialStore store = new CredentialStore(accountManager);
+        CredentialRecord written = new CredentialRecord("access-token", "refresh-token", 1000, 2000, 3);
+
+        store.write(account, TOKEN_TYPE, written);
+        CredentialRecord read = store.read(account, TOKEN_TYPE);
+
+        assertEquals("access-token", read.accessToken);
+        assertEquals("refresh-token", read.refreshToken());
+        assertEquals(1000, read.issuedAt);
+        assertEquals(2000, read.expiresAt);
+        assertEquals(3, read.version);
+        assertNull(store.read(account, "https://photos.example.com|read:photos"));
+    }
+
+    @Test
+    public void shouldKeepRefreshTokenAndIncreaseVersionWhenNoneIsGiven() throws Exception {
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        CredentialRecord first = CredentialRecord.create("access-token", "refresh-token", 3600, null);
+        accountManager.addAccountExplicitly(account, null, CredentialStore.accountData(TOKEN_TYPE, first));
+        CredentialStore store = new CredentialStore(accountManager);
+
+        CredentialRecord second = store.save(account, TOKEN_TYPE, "new-access-token", null, 3600);
+
+        assertEquals("refresh-token", second.refreshToken());
+        assertTrue(second.version > first.version);
+        assertEquals("new-access-token", store.read(account, TOKEN_TYPE).accessToken);
+    }
+
+    @Test
+    public void shouldMigrateCredentialsOfFirstVersion() throws Exception {
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        Bundle userData = new Bundle();
+        userData.putString("expiration_time", "1490003600000");
+        accountManager.addAccountExplicitly(account, "refresh-token", userData);
+        accountManager.setAuthToken(account, TOKEN_TYPE, "access-token");
+        CredentialStore store = new CredentialStore(accountManager);
+
+        CredentialRecord record = store.read(account, TOKEN_TYPE);
+
+        assertEquals("access-token", record.accessToken);
+        assertEquals("refresh-token", record.refreshToken());
+        assertEquals(1490003600000L - TokenExpiry.CLOCK_SKEW_IN_MILLIS, record.expiresAt);
+        assertNull(accountManager.getPassword(account));
+        assertNull(accountManager.peekAuthToken(account, TOKEN_TYPE));
+        assertNull(accountManager.getUserData(account, "expiration_time"));
+        assertEquals("refresh-token", store.read(account, TOKEN_TYPE).refreshToken());
+    }
+
+    @Test
+    public void shouldMigrateRefreshTokenOfFirstVersionWithoutAccessToken() throws Exception {
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        accountManager.addAccountExplicitly(account, "refresh-token", null);
+
+        CredentialRecord record = new CredentialStore(accountManager).read(account, TOKEN_TYPE);
+
+        assertNull(record.accessToken);
+        assertEquals("refresh-token", record.refreshToken());
+        assertEquals(0, record.expiresAt);
+        assertTrue(record.isExpired());
+    }
+
+    @Test
+    public void shouldOnlyMigrateDefaultTokenType() throws Exception {
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        accountManager.addAccountExplicitly(account, "refresh-token", null);
+
+        assertNull(new CredentialStore(accountManager).read(account, "https://photos.example.com|read:photos"));
+        assertEquals("refresh-token", accountManager.getPassword(account));
+    }
+
+    @Test
+    public void shouldSaveTokensWithOneReadAndOneWrite() throws Exception {
+        AccountManager accountManager = mock(AccountManager.class);
+        when(accountManager.getUserData(account, "credentials/" + TOKEN_TYPE)).thenReturn(CredentialRecord.create("access-token", "refresh-token", 3600, null).encode(TOKEN_TYPE, null));
+        CredentialStore store = new CredentialStore(accountManager);
+
+        store.save(account, TOKEN_TYPE, "new-access-token", "new-refresh-token", 3600);
+
+        verify(accountManager).setUserData(eq(account), eq("credentials/" + TOKEN_TYPE), anyString());
+        int calls = mockingDetails(accountManager).getInvocations().size();
+        assertEquals(2, calls);
+    }
+
+    @Test
+    public void shouldIncreaseVersionWhenNewRefreshTokenIsGiven() throws Exception {
+        AccountManager accountManager = AccountManager.get(RuntimeEnvironment.application);
+        //Written before the clock went back an hour
+        CredentialRecord first = new CredentialRecord("access-token", "refresh-token", 1000, 2000, System.currentTimeMillis() + 3600 * 1000);
+        accountManager.addAccountExplicitly(account, null, CredentialStore.accountData(TOKEN_TYPE, first));
+        CredentialStore store = new CredentialStore(accountManager);
+
+        CredentialRecord second = store.save(account, TOKEN_TYPE, "new-access-token", "new-refresh-token", 3600);
+        CredentialRecord third = store.save(account, TOKEN_TYPE, "newer-access-token", "newer-refresh-token", 3600);
+
+        assertEquals("new-refresh-token", second.refreshToken());
+        assertTrue(second.version > first.version);
+        assertTrue(third.version > second.version);
+    }
+
+    @Test
+    public void shouldReadTokensWithSingleIpcCall() throws Exception {
+        AccountManager accountManager = mock(AccountManager.class);
+        when(accountManager.getUserData(account, "credentials/" + TOKEN_TYPE)).thenReturn(CredentialRecord.create("access-token", "refresh-token", 3600, null).encode(TOKEN_TYPE, null));
+        CredentialStore store = new CredentialStore(accountManager);
+
+        CredentialRecord record = store.read(account, TOKEN_TYPE);
+
+        assertEquals("access-token", record.accessToken);
+        int calls = mockingDetails(accountManager).getInvocations().size();
+        assertEquals(1, calls);
+    }
+}
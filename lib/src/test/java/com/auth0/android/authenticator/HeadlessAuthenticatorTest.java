@@ -0,0 +1,76 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Uses the Authenticator from worker threads with the application context only, as a job or a sync adapter would.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class HeadlessAuthenticatorTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.headless";
+
+    private static int accountTypes;
+
+    private String accountType;
+    private Authenticator authenticator;
+
+    @Before
+    public void setUp() throws Exception {
+        //The caches are shared per Account Type in the process, so each test uses its own
+        accountType = ACCOUNT_TYPE + "." + accountTypes++;
+        authenticator = new Authenticator(RuntimeEnvironment.application, accountType);
+    }
+
+    @Test
+    public void shouldGetStoredTokenFromWorkerThread() throws Exception {
+        CredentialRecord record = CredentialRecord.create("access-token", "refresh-token", 3600, null);
+        AccountManager.get(RuntimeEnvironment.application).addAccountExplicitly(new Account("john", accountType), null, CredentialStore.accountData(TokenType.DEFAULT.key(), record));
+
+        assertEquals("access-token", onWorkerThread(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return authenticator.getToken("john", TokenType.DEFAULT).get(1, TimeUnit.SECONDS);
+            }
+        }));
+    }
+
+    @Test
+    public void shouldSaveTokensFromWorkerThread() throws Exception {
+        onWorkerThread(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return authenticator.setTokens("john", TokenType.DEFAULT, "access-token", "refresh-token", 3600).get(1, TimeUnit.SECONDS);
+            }
+        });
+
+        CredentialRecord record = new CredentialStore(AccountManager.get(RuntimeEnvironment.application)).read(new Account("john", accountType), TokenType.DEFAULT.key());
+        assertEquals("access-token", record.accessToken);
+        assertEquals("refresh-token", record.refreshToken());
+    }
+
+    private static <T> T onWorkerThread(Callable<T> work) throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            return worker.submit(work).get(5, TimeUnit.SECONDS);
+        } finally {
+            worker.shutdown();
+        }
+    }
+}
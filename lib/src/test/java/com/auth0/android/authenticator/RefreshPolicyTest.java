@@ -0,0 +1,53 @@
+package com.auth0.android.authenticator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshPolicyTest {
+
+    private static final long ISSUED_AT = 1000000;
+    private static final long EXPIRES_AT = ISSUED_AT + 3600 * 1000;
+
+    @Test
+    public void shouldRefreshWithinTheLastPartOfTheLifetime() throws Exception {
+        RefreshPolicy policy = new RefreshPolicy(0.1f, new Random(42));
+        long window = 360 * 1000;
+        for (int i = 0; i < 1000; i++) {
+            long refreshAt = policy.refreshAt(ISSUED_AT, EXPIRES_AT);
+            assertTrue(refreshAt >= EXPIRES_AT - window);
+            assertTrue(refreshAt <= EXPIRES_AT - window / 2);
+        }
+    }
+
+    @Test
+    public void shouldSpreadRefreshTimes() throws Exception {
+        RefreshPolicy policy = new RefreshPolicy(0.1f, new Random(42));
+        long first = policy.refreshAt(ISSUED_AT, EXPIRES_AT);
+        boolean spread = false;
+        for (int i = 0; i < 10 && !spread; i++) {
+            spread = policy.refreshAt(ISSUED_AT, EXPIRES_AT) != first;
+        }
+        assertTrue(spread);
+    }
+
+    @Test
+    public void shouldRefreshOnExpirationWhenDisabled() throws Exception {
+        RefreshPolicy policy = new RefreshPolicy(0);
+        assertEquals(EXPIRES_AT, policy.refreshAt(ISSUED_AT, EXPIRES_AT));
+    }
+
+    @Test
+    public void shouldRefreshOnExpirationWhenLifetimeIsUnknown() throws Exception {
+        RefreshPolicy policy = new RefreshPolicy(0.1f);
+        assertEquals(EXPIRES_AT, policy.refreshAt(0, EXPIRES_AT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidRatio() throws Exception {
+        new RefreshPolicy(1.5f);
+    }
+}
@@ -0,0 +1,47 @@
+package com.auth0.android.authenticator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void shouldStopRetryingAfterTheLastAttempt() throws Exception {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000, new Random(42));
+        assertTrue(policy.shouldRetry(1));
+        assertTrue(policy.shouldRetry(2));
+        assertFalse(policy.shouldRetry(3));
+    }
+
+    @Test
+    public void shouldDoubleTheDelayWithJitter() throws Exception {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, new Random(42));
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.delayAfter(1));
+            assertBetween(100, 200, policy.delayAfter(2));
+            assertBetween(200, 400, policy.delayAfter(3));
+        }
+    }
+
+    @Test
+    public void shouldNotExceedTheMaximumDelay() throws Exception {
+        RetryPolicy policy = new RetryPolicy(100, 100, 1000, new Random(42));
+        for (int attempt = 1; attempt < 100; attempt++) {
+            assertBetween(0, 1000, policy.delayAfter(attempt));
+        }
+        assertBetween(500, 1000, policy.delayAfter(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRequireOneAttempt() throws Exception {
+        new RetryPolicy(0, 100, 1000, new Random());
+    }
+
+    private static void assertBetween(long min, long max, long value) {
+        assertTrue(value + " is not between " + min + " and " + max, value >= min && value <= max);
+    }
+}
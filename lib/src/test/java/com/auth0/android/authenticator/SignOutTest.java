@@ -0,0 +1,131 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+
+import com.auth0.android.Auth0;
+import com.auth0.android.authentication.AuthenticationAPIClient;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Signs out several accounts at once, revoking their refresh tokens with a mock Auth0 server.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SignOutTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.signout";
+    private static final TokenType PHOTOS = new TokenType("https://photos.example.com", "read:photos");
+
+    private static int accountTypes;
+
+    private MockWebServer server;
+    private AccountManager accountManager;
+    private String accountType;
+    private Authenticator authenticator;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        Auth0 auth0 = new Auth0("CLIENT_ID", server.url("/").toString());
+        auth0.setOIDCConformant(true);
+
+        //The caches are shared per Account Type in the process, so each test uses its own
+        accountType = ACCOUNT_TYPE + "." + accountTypes++;
+        accountManager = AccountManager.get(RuntimeEnvironment.application);
+        authenticator = new Authenticator(RuntimeEnvironment.application, null, accountType, new AuthenticationAPIClient(auth0));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void shouldRemoveAccountsAndRevokeTheirRefreshTokens() throws Exception {
+        addAccount("john", TokenType.DEFAULT, "john-refresh-token");
+        addAccount("jane", TokenType.DEFAULT, "jane-refresh-token");
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        final List<SignOutProgress> reports = Collections.synchronizedList(new ArrayList<SignOutProgress>());
+
+        SignOutProgress progress = authenticator.removeAccounts(Arrays.asList("john", "jane", "nobody"), Collections.singletonList(TokenType.DEFAULT), new SignOutListener() {
+            @Override
+            public void onProgress(SignOutProgress progress) {
+                reports.add(progress);
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        assertTrue(progress.isDone());
+        assertEquals(3, progress.getAccounts());
+        assertEquals(2, progress.getRemovedAccounts());
+        assertEquals(2, progress.getTokens());
+        assertEquals(2, progress.getRevokedTokens());
+        assertEquals(0, accountManager.getAccountsByType(accountType).length);
+        assertEquals(2, server.getRequestCount());
+        String bodies = server.takeRequest().getBody().readUtf8() + server.takeRequest().getBody().readUtf8();
+        assertTrue(bodies.contains("john-refresh-token"));
+        assertTrue(bodies.contains("jane-refresh-token"));
+        //One report per account and per revocation
+        assertEquals(5, reports.size());
+    }
+
+    @Test
+    public void shouldRevokeRefreshTokenOfEveryGivenTokenType() throws Exception {
+        addAccount("john", TokenType.DEFAULT, "default-refresh-token");
+        addAccount("john", PHOTOS, "photos-refresh-token");
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+
+        SignOutProgress progress = authenticator.removeAllAccounts(Arrays.asList(TokenType.DEFAULT, PHOTOS), null).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, progress.getRemovedAccounts());
+        assertEquals(2, progress.getRevokedTokens());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldCompleteRightAwayWithoutAccounts() throws Exception {
+        SignOutProgress progress = authenticator.removeAllAccounts(Collections.singletonList(TokenType.DEFAULT), null).get(1, TimeUnit.SECONDS);
+
+        assertTrue(progress.isDone());
+        assertEquals(0, progress.getAccounts());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldCompleteRemovalWithFalseWhenThereIsNoAccount() throws Exception {
+        assertFalse(authenticator.removeAccount("nobody").get(1, TimeUnit.SECONDS));
+        assertFalse(authenticator.removeAccount().get(1, TimeUnit.SECONDS));
+    }
+
+    private void addAccount(String name, TokenType tokenType, String refreshToken) {
+        Account account = new Account(name, accountType);
+        CredentialRecord record = CredentialRecord.create("access-token", refreshToken, 3600, null);
+        if (accountManager.addAccountExplicitly(account, null, CredentialStore.accountData(tokenType.key(), record))) {
+            AccountIndex.forAccountType(RuntimeEnvironment.application, accountType).add(account);
+        } else {
+            new CredentialStore(accountManager).write(account, tokenType.key(), record);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.auth0.android.authenticator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    private ExecutorService executor;
+    private ScheduledExecutorService timer;
+    private SingleFlight<String> singleFlight;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        singleFlight = new SingleFlight<>(executor, timer, 500);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void shouldRunTaskOnceForConcurrentCallers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                executions.incrementAndGet();
+                release.await();
+                return "result";
+            }
+        };
+
+        QueueCallback callback = new QueueCallback();
+        for (int i = 0; i < 10; i++) {
+            singleFlight.execute("key", task, callback);
+        }
+        release.countDown();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("result", callback.results.poll(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void shouldRunTaskAgainAfterItFinished() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "result-" + executions.incrementAndGet();
+            }
+        };
+
+        QueueCallback callback = new QueueCallback();
+        singleFlight.execute("key", task, callback);
+        assertEquals("result-1", callback.results.poll(1, TimeUnit.SECONDS));
+        singleFlight.execute("key", task, callback);
+        assertEquals("result-2", callback.results.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldDeliverTaskErrorToEveryCaller() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                release.await();
+                throw new IllegalStateException("failed");
+            }
+        };
+
+        QueueCallback callback = new QueueCallback();
+        singleFlight.execute("key", task, callback);
+        singleFlight.execute("key", task, callback);
+        release.countDown();
+
+        assertTrue(callback.errors.poll(1, TimeUnit.SECONDS) instanceof IllegalStateException);
+        assertTrue(callback.errors.poll(1, TimeUnit.SECONDS) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void shouldCancelTaskOnTimeout() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "result";
+            }
+        };
+
+        QueueCallback callback = new QueueCallback();
+        singleFlight.execute("key", task, callback);
+
+        assertTrue(callback.errors.poll(2, TimeUnit.SECONDS) instanceof TimeoutException);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertEquals(0, callback.results.size());
+    }
+
+    @Test
+    public void shouldNotRunTaskAgainUntilTimedOutOneEnds() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                executions.incrementAndGet();
+                //Like a blocked socket read, it ignores the interruption
+                while (true) {
+                    try {
+                        release.await();
+                        return "result";
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        };
+
+        //A single thread, so a task submitted after it runs only once the timed out one has ended
+        ExecutorService serialExecutor = Executors.newSingleThreadExecutor();
+        SingleFlight<String> serialFlight = new SingleFlight<>(serialExecutor, timer, 500);
+        try {
+            QueueCallback callback = new QueueCallback();
+            serialFlight.execute("key", task, callback);
+            assertTrue(callback.errors.poll(2, TimeUnit.SECONDS) instanceof TimeoutException);
+
+            QueueCallback lateCallback = new QueueCallback();
+            assertTrue(serialFlight.execute("key", task, lateCallback));
+            assertTrue(lateCallback.errors.poll(1, TimeUnit.SECONDS) instanceof TimeoutException);
+            assertEquals(1, executions.get());
+
+            release.countDown();
+            serialExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get(2, TimeUnit.SECONDS);
+
+            QueueCallback nextCallback = new QueueCallback();
+            assertFalse(serialFlight.execute("key", task, nextCallback));
+            assertEquals("result", nextCallback.results.poll(2, TimeUnit.SECONDS));
+            assertEquals(2, executions.get());
+        } finally {
+            serialExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldFailWhenExecutorRejectsTask() throws Exception {
+        executor.shutdown();
+        QueueCallback callback = new QueueCallback();
+        singleFlight.execute("key", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "result";
+            }
+        }, callback);
+
+        assertTrue(callback.errors.poll(1, TimeUnit.SECONDS) instanceof RejectedExecutionException);
+    }
+
+    private static class QueueCallback implements ResultCallback<String> {
+        private final BlockingQueue<String> results = new ArrayBlockingQueue<>(100);
+        private final BlockingQueue<Exception> errors = new ArrayBlockingQueue<>(100);
+
+        @Override
+        public void onResult(String result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            errors.add(error);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.app.Activity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that getToken serves a recently expired token right away once a stale grace period is set.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class StaleTokenTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.stale";
+    private static final long EXPIRED_AGO_IN_MILLIS = 60 * 1000;
+
+    private Authenticator authenticator;
+    private TokenCache tokenCache;
+    private TokenMetricsRecorder metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        AccountManager accountManager = AccountManager.get(activity);
+        Account account = new Account("john", ACCOUNT_TYPE);
+        long expiresAt = System.currentTimeMillis() - EXPIRED_AGO_IN_MILLIS;
+        CredentialRecord record = new CredentialRecord("stale-token", "refresh-token", expiresAt - 3600 * 1000, expiresAt, 0);
+        accountManager.addAccountExplicitly(account, null, CredentialStore.accountData("default", record));
+
+        authenticator = new Authenticator(activity, ACCOUNT_TYPE);
+        tokenCache = TokenCache.forAccountType(activity, ACCOUNT_TYPE);
+        metrics = new TokenMetricsRecorder();
+        Components.setMetrics(metrics);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        authenticator.setStaleGracePeriod(0, TimeUnit.MILLISECONDS);
+        tokenCache.invalidate();
+        Components.setMetrics(TokenMetrics.NONE);
+    }
+
+    @Test
+    public void shouldServeExpiredTokenWithinGracePeriod() throws Exception {
+        authenticator.setStaleGracePeriod(5, TimeUnit.MINUTES);
+
+        Task<String> task = authenticator.getToken(TokenType.DEFAULT);
+
+        assertTrue(task.isDone());
+        assertEquals("stale-token", task.get());
+        assertEquals(1, metrics.getStaleTokensServed());
+    }
+
+    @Test
+    public void shouldServeCachedExpiredTokenWithinGracePeriod() throws Exception {
+        authenticator.setStaleGracePeriod(5, TimeUnit.MINUTES);
+        authenticator.getToken(TokenType.DEFAULT);
+
+        Task<String> task = authenticator.getToken("john", TokenType.DEFAULT);
+
+        assertTrue(task.isDone());
+        assertEquals("stale-token", task.get());
+        assertEquals(2, metrics.getStaleTokensServed());
+        assertEquals(1, metrics.getCacheMisses());
+    }
+}
@@ -0,0 +1,162 @@
+package com.auth0.android.authenticator;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskTest {
+
+    @Test
+    public void shouldDeliverResultToCallbacksAddedBeforeAndAfterCompletion() throws Exception {
+        Task<String> task = new Task<>();
+        RecordingCallback<String> before = new RecordingCallback<>();
+        task.then(before);
+
+        task.complete("token");
+        RecordingCallback<String> after = new RecordingCallback<>();
+        task.then(after);
+
+        assertEquals("token", before.result.get());
+        assertEquals("token", after.result.get());
+        assertEquals("token", task.get());
+    }
+
+    @Test
+    public void shouldKeepFirstOutcome() throws Exception {
+        Task<String> task = new Task<>();
+        assertTrue(task.complete("token"));
+        assertFalse(task.fail(new IllegalStateException()));
+        assertFalse(task.cancel(true));
+        assertEquals("token", task.get());
+    }
+
+    @Test
+    public void shouldDeliverOnChosenExecutor() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        Task<String> task = new Task<>();
+        task.then(executor, new RecordingCallback<String>() {
+            @Override
+            public void onResult(String result) {
+                thread.set(Thread.currentThread());
+                delivered.countDown();
+            }
+        });
+
+        task.complete("token");
+
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), thread.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldMapResultAndPassErrorsAlong() throws Exception {
+        Task<String> token = new Task<>();
+        Task<String> header = token.map(new Task.Transformation<String, String>() {
+            @Override
+            public String apply(String value) {
+                return "Bearer " + value;
+            }
+        });
+        token.complete("token");
+        assertEquals("Bearer token", header.get());
+
+        Task<String> failed = new Task<>();
+        Task<Integer> mapped = failed.map(new Task.Transformation<String, Integer>() {
+            @Override
+            public Integer apply(String value) {
+                return value.length();
+            }
+        });
+        IllegalStateException error = new IllegalStateException();
+        failed.fail(error);
+        try {
+            mapped.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void shouldFailWhenTimeoutElapses() throws Exception {
+        Task<String> task = new Task<>();
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        task.timeout(50, TimeUnit.MILLISECONDS).then(callback);
+
+        assertTrue(callback.done.await(1, TimeUnit.SECONDS));
+        assertTrue(callback.error.get() instanceof TimeoutException);
+        assertFalse(task.isDone());
+    }
+
+    @Test
+    public void shouldThrowWhenGetTimesOut() throws Exception {
+        try {
+            new Task<String>().get(10, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException expected) {
+        }
+    }
+
+    @Test
+    public void shouldStopOperationWhenCancelled() throws Exception {
+        final AtomicBoolean stopped = new AtomicBoolean();
+        Task<String> task = new Task<>();
+        task.onCancel(new Runnable() {
+            @Override
+            public void run() {
+                stopped.set(true);
+            }
+        });
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        Task<Integer> mapped = task.map(new Task.Transformation<String, Integer>() {
+            @Override
+            public Integer apply(String value) {
+                return value.length();
+            }
+        });
+        task.then(callback);
+
+        assertTrue(mapped.cancel(true));
+
+        assertTrue(stopped.get());
+        assertTrue(task.isCancelled());
+        assertTrue(callback.error.get() instanceof CancellationException);
+        assertFalse(task.complete("token"));
+    }
+
+    private static class RecordingCallback<T> implements ResultCallback<T> {
+        final AtomicReference<T> result = new AtomicReference<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onResult(T result) {
+            this.result.set(result);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            this.error.set(error);
+            done.countDown();
+        }
+    }
+}
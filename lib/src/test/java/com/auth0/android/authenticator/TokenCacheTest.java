@@ -0,0 +1,95 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.app.Activity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenCacheTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.cache";
+    private static final int CALLS = 100;
+
+    private Authenticator authenticator;
+    private TokenCache tokenCache;
+    private TokenMetricsRecorder metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        AccountManager accountManager = AccountManager.get(activity);
+        Account account = new Account("john", ACCOUNT_TYPE);
+        CredentialRecord record = CredentialRecord.create("access-token", "refresh-token", 3600, null);
+        accountManager.addAccountExplicitly(account, null, CredentialStore.accountData("default", record));
+
+        authenticator = new Authenticator(activity, ACCOUNT_TYPE);
+        tokenCache = TokenCache.forAccountType(activity, ACCOUNT_TYPE);
+        tokenCache.invalidate();
+        metrics = new TokenMetricsRecorder();
+        Components.setMetrics(metrics);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Components.setMetrics(TokenMetrics.NONE);
+    }
+
+    @Test
+    public void shouldServeValidTokenWithoutAccountManagerCalls() throws Exception {
+        TokenCallback callback = new TokenCallback();
+        authenticator.getToken(callback);
+        assertEquals(1, callback.results);
+        assertEquals(1, metrics.getCacheMisses());
+        long accountManagerCalls = metrics.getAccountManagerCalls();
+        assertTrue(accountManagerCalls > 0);
+
+        for (int i = 0; i < CALLS; i++) {
+            authenticator.getToken(callback);
+        }
+
+        assertEquals(CALLS + 1, callback.results);
+        assertEquals(CALLS, metrics.getCacheHits());
+        assertEquals(1, metrics.getCacheMisses());
+        assertEquals(accountManagerCalls, metrics.getAccountManagerCalls());
+    }
+
+    @Test
+    public void shouldReadTokenAgainOnceInvalidated() throws Exception {
+        TokenCallback callback = new TokenCallback();
+        authenticator.getToken(callback);
+        authenticator.getToken(callback);
+        tokenCache.invalidate();
+        authenticator.getToken(callback);
+
+        assertEquals(3, callback.results);
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(2, metrics.getCacheMisses());
+    }
+
+    private static class TokenCallback implements ResultCallback<String> {
+        private int results;
+
+        @Override
+        public void onResult(String result) {
+            assertEquals("access-token", result);
+            results++;
+        }
+
+        @Override
+        public void onError(Exception error) {
+            throw new AssertionError(error);
+        }
+    }
+}
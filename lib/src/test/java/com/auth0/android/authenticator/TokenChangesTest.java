@@ -0,0 +1,119 @@
+package com.auth0.android.authenticator;
+
+import android.content.Intent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Publishes token changes as the different apps sharing the Account Type would, and checks that the cache of each
+ * "process", modeled as its own TokenCache listening to the broadcasts, drops only the tokens that were replaced.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenChangesTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.changes";
+    private static final String PHOTOS = "photos";
+
+    private TokenCache firstProcess;
+    private TokenCache secondProcess;
+
+    @Before
+    public void setUp() throws Exception {
+        firstProcess = new TokenCache();
+        firstProcess.listenForTokenChanges(RuntimeEnvironment.application, ACCOUNT_TYPE);
+        secondProcess = new TokenCache();
+        secondProcess.listenForTokenChanges(RuntimeEnvironment.application, ACCOUNT_TYPE);
+    }
+
+    @Test
+    public void shouldInvalidateOlderTokensInEveryProcess() throws Exception {
+        cache(firstProcess, "john", TokenType.DEFAULT.key(), 1);
+        cache(secondProcess, "john", TokenType.DEFAULT.key(), 1);
+
+        publish(ACCOUNT_TYPE, "john", TokenType.DEFAULT.key(), 2);
+
+        assertNull(firstProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+        assertNull(secondProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+    }
+
+    @Test
+    public void shouldKeepTokenObtainedFromTheAnnouncedVersion() throws Exception {
+        cache(firstProcess, "john", TokenType.DEFAULT.key(), 2);
+        cache(secondProcess, "john", TokenType.DEFAULT.key(), 1);
+
+        publish(ACCOUNT_TYPE, "john", TokenType.DEFAULT.key(), 2);
+
+        assertNotNull(firstProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+        assertNull(secondProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+    }
+
+    @Test
+    public void shouldOnlyInvalidateTheChangedAccountAndTokenType() throws Exception {
+        cache(secondProcess, "john", TokenType.DEFAULT.key(), 1);
+        cache(secondProcess, "john", PHOTOS, 1);
+        cache(secondProcess, "jane", TokenType.DEFAULT.key(), 1);
+
+        publish(ACCOUNT_TYPE, "john", TokenType.DEFAULT.key(), 2);
+
+        assertNull(secondProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+        assertNotNull(secondProcess.peek(TokenCache.key("john", PHOTOS)));
+        assertNotNull(secondProcess.peek(TokenCache.key("jane", TokenType.DEFAULT.key())));
+    }
+
+    @Test
+    public void shouldInvalidateEveryTokenTypeOfRemovedAccount() throws Exception {
+        cache(secondProcess, "john", TokenType.DEFAULT.key(), 1);
+        cache(secondProcess, "john", PHOTOS, 1);
+        cache(secondProcess, "jane", TokenType.DEFAULT.key(), 1);
+
+        publish(ACCOUNT_TYPE, "john", null, TokenChanges.REMOVED);
+
+        assertNull(secondProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+        assertNull(secondProcess.peek(TokenCache.key("john", PHOTOS)));
+        assertNotNull(secondProcess.peek(TokenCache.key("jane", TokenType.DEFAULT.key())));
+    }
+
+    @Test
+    public void shouldIgnoreChangesOfOtherAccountTypes() throws Exception {
+        cache(secondProcess, "john", TokenType.DEFAULT.key(), 1);
+
+        publish("com.auth0.other", "john", TokenType.DEFAULT.key(), 2);
+
+        assertNotNull(secondProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+    }
+
+    @Test
+    public void shouldIgnoreChangesSentWithoutThePermission() throws Exception {
+        cache(secondProcess, "john", TokenType.DEFAULT.key(), 1);
+
+        Intent intent = new Intent(TokenChanges.ACTION_TOKENS_CHANGED)
+                .putExtra("com.auth0.android.authenticator.extra.ACCOUNT_TYPE", ACCOUNT_TYPE)
+                .putExtra("com.auth0.android.authenticator.extra.ACCOUNT_HASH", TokenChanges.accountHash("john"))
+                .putExtra("com.auth0.android.authenticator.extra.VERSION", TokenChanges.REMOVED);
+        RuntimeEnvironment.application.sendBroadcast(intent);
+        ShadowLooper.idleMainLooper();
+
+        assertNotNull(secondProcess.peek(TokenCache.key("john", TokenType.DEFAULT.key())));
+    }
+
+    private static void cache(TokenCache cache, String accountName, String authTokenType, long version) {
+        long expiresAt = System.currentTimeMillis() + 3600 * 1000;
+        TokenCache.Entry entry = new TokenCache.Entry(accountName, authTokenType, "token", expiresAt, expiresAt, version);
+        cache.put(TokenCache.key(accountName, authTokenType), entry, cache.version());
+    }
+
+    private static void publish(String accountType, String accountName, String authTokenType, long version) {
+        TokenChanges.publish(RuntimeEnvironment.application, accountType, accountName, authTokenType, version);
+        ShadowLooper.idleMainLooper();
+    }
+}
@@ -0,0 +1,137 @@
+package com.auth0.android.authenticator;
+
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sends hundreds of concurrent requests through the interceptor while the API starts rejecting the current token,
+ * as it would once the token expires, and checks that a single renewal serves all of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenInterceptorTest {
+
+    private static final int REQUESTS = 300;
+    private static final int CLIENT_THREADS = 64;
+    private static final int REQUESTS_BEFORE_EXPIRY = 50;
+    private static final long RENEWAL_DELAY_IN_MILLIS = 200;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private ScheduledExecutorService renewalThread;
+    private final AtomicReference<String> storedToken = new AtomicReference<>("token-1");
+    private final AtomicReference<String> acceptedToken = new AtomicReference<>("token-1");
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger renewals = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (served.incrementAndGet() == REQUESTS_BEFORE_EXPIRY) {
+                    acceptedToken.set("token-2");
+                }
+                boolean authorized = ("Bearer " + acceptedToken.get()).equals(request.getHeader("Authorization"));
+                return authorized ? new MockResponse().setBody("ok") : new MockResponse().setResponseCode(401);
+            }
+        });
+        server.start();
+        renewalThread = Executors.newSingleThreadScheduledExecutor();
+
+        Authenticator authenticator = mock(Authenticator.class);
+        when(authenticator.getToken((String) isNull(), any(TokenType.class))).thenAnswer(new Answer<Task<String>>() {
+            @Override
+            public Task<String> answer(InvocationOnMock invocation) throws Throwable {
+                return Task.completed(storedToken.get());
+            }
+        });
+        when(authenticator.renewToken((String) isNull(), any(TokenType.class), anyString())).thenAnswer(new Answer<Task<String>>() {
+            @Override
+            public Task<String> answer(InvocationOnMock invocation) throws Throwable {
+                renewals.incrementAndGet();
+                final Task<String> renewal = new Task<>();
+                renewalThread.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        storedToken.set("token-2");
+                        renewal.complete("token-2");
+                    }
+                }, RENEWAL_DELAY_IN_MILLIS, TimeUnit.MILLISECONDS);
+                return renewal;
+            }
+        });
+
+        client = new OkHttpClient();
+        client.interceptors().add(new TokenInterceptor(authenticator));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        renewalThread.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void shouldRenewOnceAndReplayEveryRejectedRequest() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(CLIENT_THREADS);
+        final List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(callers.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    Response response = client.newCall(new Request.Builder().url(server.url("/api")).build()).execute();
+                    response.body().close();
+                    return response.code();
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<Integer> result : results) {
+            assertEquals(200, (int) result.get(30, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        assertEquals(1, renewals.get());
+        //Only requests sent before the renewal were rejected, and each of them was replayed once
+        assertTrue(server.getRequestCount() <= 2 * REQUESTS);
+    }
+}
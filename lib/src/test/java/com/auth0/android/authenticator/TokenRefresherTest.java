@@ -0,0 +1,129 @@
+package com.auth0.android.authenticator;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.accounts.AccountManagerCallback;
+import android.accounts.AccountManagerFuture;
+import android.os.Bundle;
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenRefresherTest {
+
+    private static final String ACCOUNT_TYPE = "com.auth0.refresher";
+
+    private AccountManager accountManager;
+    private TokenCache tokenCache;
+    private TokenRefresher refresher;
+    private AccountManagerFuture<Bundle> sameToken;
+    private final List<Runnable> scheduledTasks = new ArrayList<>();
+    private final List<Long> scheduledDelays = new ArrayList<>();
+    private final List<AccountManagerCallback<Bundle>> pendingCallbacks = new ArrayList<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        //The Authenticator Service couldn't reach Auth0, so it answers with the same token
+        Bundle result = new Bundle();
+        result.putString(AccountManager.KEY_AUTHTOKEN, "token");
+        sameToken = mock(AccountManagerFuture.class);
+        when(sameToken.getResult()).thenReturn(result);
+        accountManager = mock(AccountManager.class);
+        when(accountManager.getAuthToken(any(Account.class), anyString(), any(Bundle.class), anyBoolean(), any(AccountManagerCallback.class), any(Handler.class))).thenAnswer(new Answer<AccountManagerFuture<Bundle>>() {
+            @Override
+            public AccountManagerFuture<Bundle> answer(InvocationOnMock invocation) throws Throwable {
+                pendingCallbacks.add((AccountManagerCallback<Bundle>) invocation.getArguments()[4]);
+                return sameToken;
+            }
+        });
+
+        //Records the scheduled refreshes, so the test decides when each of them runs
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(new Answer<ScheduledFuture<?>>() {
+            @Override
+            public ScheduledFuture<?> answer(InvocationOnMock invocation) throws Throwable {
+                final long delay = (Long) invocation.getArguments()[1];
+                scheduledTasks.add((Runnable) invocation.getArguments()[0]);
+                scheduledDelays.add(delay);
+                ScheduledFuture<?> scheduled = mock(ScheduledFuture.class);
+                when(scheduled.getDelay(TimeUnit.MILLISECONDS)).thenReturn(delay);
+                return scheduled;
+            }
+        });
+
+        tokenCache = new TokenCache();
+        refresher = new TokenRefresher(accountManager, ACCOUNT_TYPE, tokenCache, new Connectivity(RuntimeEnvironment.application), scheduler, null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldNotBringFailedRefreshForwardOnCacheHits() throws Exception {
+        TokenCache.Entry entry = cacheDueToken();
+
+        refresher.refreshIfDue(entry);
+        assertEquals(1, scheduledTasks.size());
+        assertEquals(0L, (long) scheduledDelays.get(0));
+        scheduledTasks.get(0).run();
+        pendingCallbacks.get(0).run(sameToken);
+        assertEquals(2, scheduledTasks.size());
+        assertEquals(60 * 1000L, (long) scheduledDelays.get(1));
+
+        for (int i = 0; i < 10; i++) {
+            refresher.refreshIfDue(entry);
+        }
+
+        assertEquals(2, scheduledTasks.size());
+        verify(accountManager, times(1)).getAuthToken(any(Account.class), anyString(), any(Bundle.class), anyBoolean(), any(AccountManagerCallback.class), any(Handler.class));
+    }
+
+    @Test
+    public void shouldNotWaitForRefreshToStartTheNextOne() throws Exception {
+        TokenCache.Entry john = cacheDueToken();
+        long now = System.currentTimeMillis();
+        String key = TokenCache.key("jane", TokenType.DEFAULT.key());
+        TokenCache.Entry jane = new TokenCache.Entry("jane", TokenType.DEFAULT.key(), "other-token", now + 60 * 1000, now - 1000, 1);
+        tokenCache.put(key, jane, tokenCache.version());
+
+        refresher.refreshIfDue(john);
+        refresher.refreshIfDue(jane);
+        scheduledTasks.get(0).run();
+        scheduledTasks.get(1).run();
+
+        //Both refreshes were sent while neither got its result yet
+        assertEquals(2, pendingCallbacks.size());
+    }
+
+    private TokenCache.Entry cacheDueToken() {
+        long now = System.currentTimeMillis();
+        String key = TokenCache.key("john", TokenType.DEFAULT.key());
+        TokenCache.Entry entry = new TokenCache.Entry("john", TokenType.DEFAULT.key(), "token", now + 60 * 1000, now - 1000, 1);
+        tokenCache.put(key, entry, tokenCache.version());
+        return entry;
+    }
+}
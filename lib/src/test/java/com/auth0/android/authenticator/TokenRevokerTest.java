@@ -0,0 +1,264 @@
+package com.auth0.android.authenticator;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowNetworkInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenRevokerTest {
+
+    private static final String CLIENT_ID = "CLIENT_ID";
+
+    private MockWebServer server;
+    private ScheduledExecutorService scheduler;
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private volatile CountDownLatch overlappingRequests = new CountDownLatch(0);
+    private final Semaphore receivedRequests = new Semaphore(0);
+    private final List<MockResponse> responses = Collections.synchronizedList(new ArrayList<MockResponse>());
+    private ConnectivityManager connectivityManager;
+    private SharedPreferences preferences;
+    private TokenRevoker revoker;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                final int concurrent = concurrentRequests.incrementAndGet();
+                synchronized (maxConcurrentRequests) {
+                    maxConcurrentRequests.set(Math.max(maxConcurrentRequests.get(), concurrent));
+                }
+                //Holds the first requests until the expected ones overlap
+                overlappingRequests.countDown();
+                overlappingRequests.await(5, TimeUnit.SECONDS);
+                concurrentRequests.decrementAndGet();
+                final MockResponse response = responses.isEmpty() ? new MockResponse() : responses.remove(0);
+                receivedRequests.release();
+                return response;
+            }
+        });
+        server.start();
+
+        connectivityManager = (ConnectivityManager) RuntimeEnvironment.application.getSystemService(Context.CONNECTIVITY_SERVICE);
+        preferences = RuntimeEnvironment.application.getSharedPreferences("revocations", Context.MODE_PRIVATE);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        revoker = createRevoker();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        scheduler.shutdownNow();
+        Components.setCredentialCipher(null);
+    }
+
+    @Test
+    public void shouldRevokeTokensInParallelUpToTheLimit() throws Exception {
+        List<String> refreshTokens = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            refreshTokens.add("refresh-token-" + i);
+        }
+        Outcomes outcomes = new Outcomes(refreshTokens.size());
+        overlappingRequests = new CountDownLatch(2);
+
+        revoker.revoke(refreshTokens, server.url("/").toString(), CLIENT_ID, outcomes);
+
+        outcomes.await();
+        assertEquals(12, outcomes.revoked.get());
+        assertEquals(12, server.getRequestCount());
+        assertTrue(maxConcurrentRequests.get() > 1);
+        assertTrue(maxConcurrentRequests.get() <= 4);
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/oauth/revoke", request.getPath());
+        String body = request.getBody().readUtf8();
+        assertTrue(body.contains("\"client_id\":\"" + CLIENT_ID + "\""));
+        assertTrue(body.contains("refresh-token-"));
+        assertTrue(preferences.getAll().isEmpty());
+    }
+
+    @Test
+    public void shouldQueueRevocationsWhileOfflineAndSendThemOnceOnline() throws Exception {
+        Shadows.shadowOf(connectivityManager).setActiveNetworkInfo(null);
+        Outcomes outcomes = new Outcomes(2);
+
+        revoker.revoke(Arrays.asList("refresh-token-1", "refresh-token-2"), server.url("/").toString(), CLIENT_ID, outcomes);
+
+        outcomes.await();
+        assertEquals(2, outcomes.deferred.get());
+        assertEquals(0, server.getRequestCount());
+
+        NetworkInfo network = ShadowNetworkInfo.newInstance(NetworkInfo.DetailedState.CONNECTED, ConnectivityManager.TYPE_WIFI, 0, true, true);
+        Shadows.shadowOf(connectivityManager).setActiveNetworkInfo(network);
+        RuntimeEnvironment.application.sendBroadcast(new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+        ShadowLooper.idleMainLooper();
+
+        awaitRequests(2);
+    }
+
+    @Test
+    public void shouldRetryRevocationWhenAuth0Fails() throws Exception {
+        responses.add(new MockResponse().setResponseCode(503));
+        Outcomes outcomes = new Outcomes(1);
+
+        revoker.revoke(Collections.singletonList("refresh-token"), server.url("/").toString(), CLIENT_ID, outcomes);
+
+        outcomes.await();
+        assertEquals(1, outcomes.revoked.get());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldOnlyQueueTokensInMemoryWithoutKey() throws Exception {
+        responses.add(new MockResponse().setResponseCode(503));
+        responses.add(new MockResponse().setResponseCode(503));
+        Outcomes outcomes = new Outcomes(1);
+
+        revoker.revoke(Collections.singletonList("refresh-token"), server.url("/").toString(), CLIENT_ID, outcomes);
+
+        outcomes.await();
+        assertEquals(1, outcomes.deferred.get());
+        assertEquals(2, server.getRequestCount());
+        //Another process would have nothing to send, while this one still sends it
+        assertTrue(preferences.getAll().isEmpty());
+
+        Outcomes pending = new Outcomes(1);
+        revoker.revokePending(pending);
+        pending.await();
+        assertEquals(1, pending.revoked.get());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void shouldSendRevocationsLeftQueuedByPreviousProcess() throws Exception {
+        Components.setCredentialCipher(new CredentialCipher(new byte[32]));
+        responses.add(new MockResponse().setResponseCode(503));
+        responses.add(new MockResponse().setResponseCode(503));
+        Outcomes outcomes = new Outcomes(1);
+
+        revoker.revoke(Collections.singletonList("refresh-token"), server.url("/").toString(), CLIENT_ID, outcomes);
+
+        outcomes.await();
+        assertEquals(1, outcomes.deferred.get());
+        assertEquals(1, preferences.getAll().size());
+
+        Outcomes pending = new Outcomes(1);
+        createRevoker().revokePending(pending);
+
+        pending.await();
+        assertEquals(1, pending.revoked.get());
+        assertTrue(preferences.getAll().isEmpty());
+        assertEquals(3, server.getRequestCount());
+        server.takeRequest();
+        server.takeRequest();
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("refresh-token"));
+    }
+
+    @Test
+    public void shouldNotResendRejectedRevocation() throws Exception {
+        responses.add(new MockResponse().setResponseCode(400));
+        Outcomes outcomes = new Outcomes(1);
+
+        revoker.revoke(Collections.singletonList("refresh-token"), server.url("/").toString(), CLIENT_ID, outcomes);
+
+        outcomes.await();
+        assertEquals(1, outcomes.rejected.get());
+        assertTrue(preferences.getAll().isEmpty());
+    }
+
+    @Test
+    public void shouldNotQueueTokensInPlainTextWithKey() throws Exception {
+        Components.setCredentialCipher(new CredentialCipher(new byte[32]));
+        Shadows.shadowOf(connectivityManager).setActiveNetworkInfo(null);
+        Outcomes outcomes = new Outcomes(1);
+
+        revoker.revoke(Collections.singletonList("refresh-token"), server.url("/").toString(), CLIENT_ID, outcomes);
+
+        outcomes.await();
+        for (Object entry : preferences.getAll().values()) {
+            assertFalse(((String) entry).contains("refresh-token"));
+        }
+    }
+
+    private TokenRevoker createRevoker() {
+        //Two quick attempts, so the tests don't wait for the real backoff
+        RetryPolicy retryPolicy = new RetryPolicy(2, 10, 10, new Random());
+        return new TokenRevoker(preferences, new Connectivity(RuntimeEnvironment.application), Components.httpClient(), retryPolicy, scheduler);
+    }
+
+    private void awaitRequests(int requests) throws InterruptedException {
+        assertTrue(receivedRequests.tryAcquire(requests, 5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Counts the outcomes, and waits for the expected number of them.
+     */
+    private static class Outcomes implements TokenRevoker.Listener {
+        private final CountDownLatch latch;
+        private final AtomicInteger revoked = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+        private final AtomicInteger deferred = new AtomicInteger();
+
+        Outcomes(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onRevoked() {
+            revoked.incrementAndGet();
+            latch.countDown();
+        }
+
+        @Override
+        public void onRejected() {
+            rejected.incrementAndGet();
+            latch.countDown();
+        }
+
+        @Override
+        public void onDeferred() {
+            deferred.incrementAndGet();
+            latch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
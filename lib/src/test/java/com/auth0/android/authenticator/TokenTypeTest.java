@@ -0,0 +1,46 @@
+package com.auth0.android.authenticator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenTypeTest {
+
+    @Test
+    public void shouldUseDefaultKeyWithoutAudienceOrScope() throws Exception {
+        assertEquals("default", new TokenType(null, " ").key());
+        assertEquals(TokenType.DEFAULT, new TokenType("", null));
+    }
+
+    @Test
+    public void shouldNormalizeScope() throws Exception {
+        TokenType tokenType = new TokenType("https://api.example.com", " read:photos openid  read:photos ");
+        assertEquals("openid read:photos", tokenType.getScope());
+        assertEquals(tokenType, new TokenType("https://api.example.com", "openid read:photos"));
+    }
+
+    @Test
+    public void shouldDistinguishAudiences() throws Exception {
+        assertNotEquals(new TokenType("https://photos.example.com", "openid"), new TokenType("https://videos.example.com", "openid"));
+    }
+
+    @Test
+    public void shouldRebuildFromKey() throws Exception {
+        TokenType tokenType = new TokenType("https://api.example.com", "openid read:photos");
+        TokenType rebuilt = TokenType.fromKey(tokenType.key());
+        assertEquals("https://api.example.com", rebuilt.getAudience());
+        assertEquals("openid read:photos", rebuilt.getScope());
+
+        TokenType withoutAudience = TokenType.fromKey(new TokenType(null, "openid").key());
+        assertNull(withoutAudience.getAudience());
+        assertEquals("openid", withoutAudience.getScope());
+        assertEquals(TokenType.DEFAULT, TokenType.fromKey("default"));
+    }
+}